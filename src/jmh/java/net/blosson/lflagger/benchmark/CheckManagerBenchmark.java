@@ -0,0 +1,68 @@
+package net.blosson.lflagger.benchmark;
+
+import net.blosson.lflagger.checks.CheckManager;
+import net.blosson.lflagger.config.ConfigManager;
+import net.blosson.lflagger.data.EnvironmentSnapshot;
+import net.blosson.lflagger.data.PlayerFrame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full {@link CheckManager} tick over a number of walking players, running every check on each.
+ * The frames are replayed through {@link CheckManager#replayTick}, which is the same pipeline the
+ * client runs minus the capture from live entities.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CheckManagerBenchmark {
+
+    /** The number of recorded ticks cycled through, so the players keep moving. */
+    private static final int TICKS = 64;
+
+    @Param({"1", "10", "50"})
+    public int players;
+
+    @Param({"0", "2"})
+    public int workerThreads;
+
+    private CheckManager checkManager;
+    private final List<List<PlayerFrame>> ticks = new ArrayList<>();
+    private final List<EnvironmentSnapshot> environments = new ArrayList<>();
+    private int tick;
+
+    @Setup
+    public void setup() {
+        ConfigManager.getInstance().override(config -> config.getPerformance().workerThreads = workerThreads);
+        checkManager = new CheckManager();
+
+        PlayerFrame[] last = new PlayerFrame[players];
+        for (int t = 0; t < TICKS; t++) {
+            List<PlayerFrame> frames = new ArrayList<>(players);
+            for (int p = 0; p < players; p++) {
+                last[p] = Fixtures.walkingFrame(p, t, last[p] == null ? null : last[p].position);
+                frames.add(last[p]);
+            }
+            ticks.add(frames);
+        }
+        for (int p = 0; p < players; p++) {
+            environments.add(Fixtures.walkingEnvironment());
+        }
+    }
+
+    @Benchmark
+    public void tick() {
+        checkManager.replayTick(ticks.get(tick), environments);
+        tick = (tick + 1) % TICKS;
+    }
+}
@@ -0,0 +1,48 @@
+package net.blosson.lflagger.benchmark;
+
+import net.blosson.lflagger.data.PlayerFrame;
+import net.blosson.lflagger.physics.CollisionBoxes;
+import net.blosson.lflagger.physics.Collisions;
+import net.blosson.lflagger.physics.kernel.MotionState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gathering the broadphase boxes from a world snapshot, and sweeping one candidate against them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CollisionsBenchmark {
+
+    private PlayerFrame frame;
+    private final CollisionBoxes collisionBoxes = new CollisionBoxes();
+    private final MotionState motion = new MotionState();
+
+    @Setup
+    public void setup() {
+        frame = Fixtures.walkingFrame(0, 0L, null);
+        collisionBoxes.gather(frame, -0.3, 0.3, -0.1, 0.5, -0.3, 0.3);
+    }
+
+    @Benchmark
+    public CollisionBoxes gather() {
+        collisionBoxes.gather(frame, -0.3, 0.3, -0.1, 0.5, -0.3, 0.3);
+        return collisionBoxes;
+    }
+
+    @Benchmark
+    public MotionState collideIntoWall() {
+        // Moving diagonally into the floor and towards the wall exercises all three axes and the step-up pass.
+        motion.set(frame.getX(), frame.getY(), frame.getZ(), 0.3, -0.08, 0.2);
+        Collisions.collide(frame, collisionBoxes, motion);
+        return motion;
+    }
+}
@@ -0,0 +1,97 @@
+package net.blosson.lflagger.benchmark;
+
+import net.blosson.lflagger.data.EnvironmentSnapshot;
+import net.blosson.lflagger.data.PlayerFrame;
+import net.blosson.lflagger.data.WorldSnapshot;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Synthetic players and surroundings for the benchmarks, so they run without a world or a server.
+ * <p>
+ * Every player walks along +Z on a flat floor with a two block high wall two blocks to their +X side,
+ * which gives the collision code a realistic number of boxes to sweep against.
+ */
+final class Fixtures {
+
+    static final double PLAYER_WIDTH = 0.6;
+    static final double PLAYER_HEIGHT = 1.8;
+    static final int FLOOR_Y = 64;
+
+    private Fixtures() {}
+
+    /**
+     * Builds a snapshot of a flat floor below {@code (blockX, FLOOR_Y, blockZ)} with a wall beside it.
+     */
+    static WorldSnapshot floorWithWall(int blockX, int blockZ) {
+        int originX = blockX - WorldSnapshot.RADIUS_HORIZONTAL;
+        int originY = FLOOR_Y - WorldSnapshot.RADIUS_DOWN;
+        int originZ = blockZ - WorldSnapshot.RADIUS_HORIZONTAL;
+
+        byte[] cells = new byte[WorldSnapshot.SIZE_X * WorldSnapshot.SIZE_Y * WorldSnapshot.SIZE_Z];
+        float[] slipperiness = new float[cells.length];
+        Arrays.fill(slipperiness, 0.6f);
+
+        double[] boxes = new double[6 * (WorldSnapshot.SIZE_X * WorldSnapshot.SIZE_Z + 2 * WorldSnapshot.SIZE_Z)];
+        int count = 0;
+        for (int x = 0; x < WorldSnapshot.SIZE_X; x++) {
+            for (int z = 0; z < WorldSnapshot.SIZE_Z; z++) {
+                count = putBlock(boxes, count, originX + x, FLOOR_Y - 1, originZ + z);
+            }
+        }
+        for (int y = 0; y < 2; y++) {
+            for (int z = 0; z < WorldSnapshot.SIZE_Z; z++) {
+                count = putBlock(boxes, count, blockX + 2, FLOOR_Y + y, originZ + z);
+            }
+        }
+        return WorldSnapshot.fromRecorded(originX, originY, originZ, cells, slipperiness, boxes, count);
+    }
+
+    private static int putBlock(double[] boxes, int count, int x, int y, int z) {
+        int offset = count * 6;
+        boxes[offset] = x;
+        boxes[offset + 1] = y;
+        boxes[offset + 2] = z;
+        boxes[offset + 3] = x + 1;
+        boxes[offset + 4] = y + 1;
+        boxes[offset + 5] = z + 1;
+        return count + 1;
+    }
+
+    /**
+     * Creates a frame for a player walking on the floor of {@link #floorWithWall(int, int)}, centered on
+     * the player's current block.
+     *
+     * @param index Distinguishes players; each one gets its own UUID, entity ID and spot.
+     * @param worldTime The tick the frame belongs to.
+     * @param previous The player's previous position, or {@code null} to start standing still.
+     */
+    static PlayerFrame walkingFrame(int index, long worldTime, Vec3d previous) {
+        int blockX = index * 16;
+        Vec3d position = previous == null
+                ? new Vec3d(blockX + 0.5, FLOOR_Y, 0.5)
+                : previous.add(0.0, 0.0, 0.1);
+        Vec3d lastPosition = previous == null ? position : previous;
+        Vec3d velocity = position.subtract(lastPosition);
+        Box box = new Box(position.x - PLAYER_WIDTH / 2, position.y, position.z - PLAYER_WIDTH / 2,
+                position.x + PLAYER_WIDTH / 2, position.y + PLAYER_HEIGHT, position.z + PLAYER_WIDTH / 2);
+
+        return new PlayerFrame(new UUID(0L, index), index, "Player" + index, false, false, false,
+                worldTime, worldTime * 50L, position, lastPosition, velocity, velocity, box,
+                0.0f, 0.6f, floorWithWall(blockX, (int) Math.floor(position.z)),
+                true, false, false, false, false, false, 0, 0.0, false, 50, 20.0, true, true);
+    }
+
+    /**
+     * @return The environment of a player walking on stone without any effects.
+     */
+    static EnvironmentSnapshot walkingEnvironment() {
+        EnvironmentSnapshot environment = new EnvironmentSnapshot();
+        environment.movementSpeed = 0.1f;
+        environment.movementSpeedAttribute = 0.1;
+        return environment;
+    }
+}
@@ -0,0 +1,35 @@
+package net.blosson.lflagger.benchmark;
+
+import net.blosson.lflagger.simulation.SimulatedPlayer;
+import net.blosson.lflagger.util.object.ObjectPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An acquire/release round trip through the {@link ObjectPool}, against plain allocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ObjectPoolBenchmark {
+
+    private final ObjectPool<SimulatedPlayer> pool = new ObjectPool<>("benchmark", SimulatedPlayer::new, 20);
+
+    @Benchmark
+    public SimulatedPlayer acquireRelease() {
+        SimulatedPlayer simulatedPlayer = pool.acquire();
+        pool.release(simulatedPlayer);
+        return simulatedPlayer;
+    }
+
+    @Benchmark
+    public SimulatedPlayer allocate() {
+        return new SimulatedPlayer();
+    }
+}
@@ -0,0 +1,41 @@
+package net.blosson.lflagger.benchmark;
+
+import net.blosson.lflagger.data.PlayerData;
+import net.blosson.lflagger.data.PlayerFrame;
+import net.blosson.lflagger.data.PositionHistory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Updating a player's {@link PlayerData} once its position history is full, as happens for every
+ * player on every tick.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PlayerDataBenchmark {
+
+    private PlayerFrame frame;
+    private final PlayerData data = new PlayerData();
+
+    @Setup
+    public void setup() {
+        frame = Fixtures.walkingFrame(0, 0L, null);
+        for (int i = 0; i <= PositionHistory.CAPACITY; i++) {
+            data.update(frame, 20.0f);
+        }
+    }
+
+    @Benchmark
+    public PlayerData update() {
+        data.update(frame, 20.0f);
+        return data;
+    }
+}
@@ -0,0 +1,48 @@
+package net.blosson.lflagger.benchmark;
+
+import net.blosson.lflagger.config.ConfigManager;
+import net.blosson.lflagger.data.PlayerFrame;
+import net.blosson.lflagger.data.PlayerState;
+import net.blosson.lflagger.physics.PredictionEngineNormal;
+import net.blosson.lflagger.physics.PredictionResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full candidate search of the normal prediction engine, with the batched and the scalar
+ * first pass.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PredictionEngineBenchmark {
+
+    @Param({"true", "false"})
+    public boolean batched;
+
+    private final PredictionEngineNormal engine = new PredictionEngineNormal();
+    private PlayerFrame frame;
+    private PlayerState state;
+
+    @Setup
+    public void setup() {
+        ConfigManager.getInstance().override(config -> config.getPerformance().batchedCandidateEvaluation = batched);
+        PlayerFrame previous = Fixtures.walkingFrame(0, 0L, null);
+        frame = Fixtures.walkingFrame(0, 1L, previous.position);
+        state = new PlayerState(previous);
+        state.environment.copyFrom(Fixtures.walkingEnvironment());
+    }
+
+    @Benchmark
+    public PredictionResult guessBestMovement() {
+        return engine.guessBestMovement(frame, state);
+    }
+}
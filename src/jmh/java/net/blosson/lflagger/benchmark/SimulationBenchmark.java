@@ -0,0 +1,43 @@
+package net.blosson.lflagger.benchmark;
+
+import net.blosson.lflagger.data.EnvironmentSnapshot;
+import net.blosson.lflagger.data.PlayerFrame;
+import net.blosson.lflagger.simulation.MovementSimulator;
+import net.blosson.lflagger.simulation.SimulatedPlayer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One tick of the simulator used by the Fly, Speed and Strafe checks, including resetting the
+ * simulated player as the checks do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SimulationBenchmark {
+
+    private final MovementSimulator simulator = new MovementSimulator();
+    private final SimulatedPlayer simulatedPlayer = new SimulatedPlayer();
+    private PlayerFrame frame;
+    private EnvironmentSnapshot environment;
+
+    @Setup
+    public void setup() {
+        frame = Fixtures.walkingFrame(0, 1L, Fixtures.walkingFrame(0, 0L, null).position);
+        environment = Fixtures.walkingEnvironment();
+    }
+
+    @Benchmark
+    public SimulatedPlayer tick() {
+        simulatedPlayer.reset(frame, environment);
+        simulator.tick(environment, simulatedPlayer, 1.0f, 0.0f, 20.0, 50);
+        return simulatedPlayer;
+    }
+}
@@ -0,0 +1,123 @@
+package net.blosson.lflagger.physics.kernel;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that {@link CandidateBatch} reproduces the scalar {@link NormalMovement} path bit for bit,
+ * for every input candidate the normal prediction engine searches.
+ */
+class CandidateBatchTest {
+
+    private static final PlayerInput[] INPUTS = allInputs();
+    private static final float[] YAWS = {0.0f, 45.0f, -90.0f, 137.5f, 180.0f, -359.9f};
+
+    @Test
+    void coversEveryCandidate() {
+        assertEquals(36, INPUTS.length);
+    }
+
+    @Test
+    void matchesScalarPathOnNormalGround() {
+        MovementConditions conditions = conditions();
+        assertMatches(conditions, 0.05, -0.0784, -0.12);
+    }
+
+    @Test
+    void matchesScalarPathOnIce() {
+        MovementConditions conditions = conditions();
+        conditions.groundType = MovementConditions.GroundType.ICE;
+        assertMatches(conditions, 0.31, -0.0784, 0.27);
+    }
+
+    @Test
+    void matchesScalarPathInCobweb() {
+        MovementConditions conditions = conditions();
+        conditions.inCobweb = true;
+        assertMatches(conditions, 0.02, -0.15, 0.01);
+    }
+
+    @Test
+    void matchesScalarPathWithEffects() {
+        MovementConditions conditions = conditions();
+        conditions.speedAmplifier = 1;
+        conditions.slownessAmplifier = 0;
+        conditions.jumpBoostAmplifier = 2;
+        assertMatches(conditions, -0.2, 0.33, 0.18);
+    }
+
+    @Test
+    void matchesScalarPathWithLevitation() {
+        MovementConditions conditions = conditions();
+        conditions.levitationAmplifier = 0;
+        conditions.groundType = MovementConditions.GroundType.SLIME;
+        assertMatches(conditions, 0.1, 0.05, -0.07);
+    }
+
+    private static MovementConditions conditions() {
+        MovementConditions conditions = new MovementConditions();
+        conditions.movementSpeed = 0.1f;
+        conditions.movementSpeedAttribute = 0.1;
+        return conditions;
+    }
+
+    /**
+     * Evaluates every candidate with both paths for each yaw and each sprint/ground combination,
+     * and requires identical velocities and distances.
+     */
+    private static void assertMatches(MovementConditions conditions, double velocityX, double velocityY, double velocityZ) {
+        double x = 12.5, y = 64.0, z = -3.25;
+        double observedX = x + 0.21, observedY = y + 0.1, observedZ = z - 0.17;
+
+        CandidateBatch batch = new CandidateBatch(INPUTS);
+        MotionState motion = new MotionState();
+
+        for (float yaw : YAWS) {
+            for (int flags = 0; flags < 4; flags++) {
+                boolean sprinting = (flags & 1) != 0;
+                boolean onGround = (flags & 2) != 0;
+
+                batch.evaluate(x, y, z, velocityX, velocityY, velocityZ, observedX, observedY, observedZ,
+                        conditions, sprinting, onGround, yaw);
+
+                for (int i = 0; i < INPUTS.length; i++) {
+                    motion.set(x, y, z, velocityX, velocityY, velocityZ);
+                    NormalMovement.applyInput(conditions, INPUTS[i], sprinting, onGround, yaw, motion);
+                    motion.applyVelocity();
+
+                    String context = "candidate " + i + ", yaw " + yaw + ", sprinting " + sprinting + ", onGround " + onGround;
+                    assertEquals(motion.vx, batch.vx[i], 0.0, context);
+                    assertEquals(motion.vy, batch.vy[i], 0.0, context);
+                    assertEquals(motion.vz, batch.vz[i], 0.0, context);
+                    assertEquals(motion.distanceTo(observedX, observedY, observedZ), batch.distance[i], 0.0, context);
+                }
+            }
+        }
+    }
+
+    /**
+     * The candidate set of the normal prediction engine: nine directions, then every one of them
+     * jumping, then all of those sneaking.
+     */
+    private static PlayerInput[] allInputs() {
+        List<PlayerInput> inputs = new ArrayList<>();
+        for (int forward = -1; forward <= 1; forward++) {
+            for (int strafe = -1; strafe <= 1; strafe++) {
+                inputs.add(new PlayerInput(forward, strafe, false, false));
+            }
+        }
+        for (int i = 0, n = inputs.size(); i < n; i++) {
+            PlayerInput input = inputs.get(i);
+            inputs.add(new PlayerInput(input.forward, input.strafe, true, input.sneaking));
+        }
+        for (int i = 0, n = inputs.size(); i < n; i++) {
+            PlayerInput input = inputs.get(i);
+            inputs.add(new PlayerInput(input.forward, input.strafe, input.jumping, true));
+        }
+        return inputs.toArray(new PlayerInput[0]);
+    }
+}
@@ -0,0 +1,100 @@
+package net.blosson.lflagger.physics.kernel;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks the collision sweep against small hand-built scenes around a player-sized body standing at
+ * {@code (0.5, 64, 0.5)} on a floor whose top is at {@code y = 64}.
+ */
+class SweepCollisionTest {
+
+    private static final double EPSILON = 1e-9;
+    private static final double STEP_HEIGHT = 0.6;
+
+    private static final double[] FLOOR = {-4, 63, -4, 4, 64, 4};
+    private static final double[] WALL = {1, 64, -4, 2, 66, 4};
+    private static final double[] SLAB = {1, 64, -4, 2, 64.5, 4};
+
+    @Test
+    void wallStopsHorizontalMovement() {
+        MotionState motion = walkEast(0.3, -0.0784);
+        collideAt(64.0, true, motion, FLOOR, WALL);
+
+        assertEquals(0.2, motion.vx, EPSILON);
+        assertEquals(0.0, motion.vy, EPSILON);
+        assertEquals(0.0, motion.vz, EPSILON);
+    }
+
+    @Test
+    void stepsUpOntoSlab() {
+        MotionState motion = walkEast(0.3, -0.0784);
+        collideAt(64.0, true, motion, FLOOR, SLAB);
+
+        assertEquals(0.3, motion.vx, EPSILON);
+        // The full step height, not the slab's 0.5. The final vertical pass of the step-up is run with the
+        // upward step motion, so it only clips against ceilings and never settles the body back down onto
+        // the slab. The kernel keeps this from the original collision code; gravity lands the body next tick.
+        assertEquals(STEP_HEIGHT, motion.vy, 0.0);
+        assertEquals(0.0, motion.vz, EPSILON);
+    }
+
+    @Test
+    void doesNotStepWhenAirborne() {
+        MotionState motion = walkEast(0.3, -0.0784);
+        collideAt(64.0, false, motion, FLOOR, SLAB);
+
+        assertEquals(0.2, motion.vx, EPSILON);
+        assertEquals(0.0, motion.vy, EPSILON);
+    }
+
+    @Test
+    void landsOnFloor() {
+        MotionState motion = walkEast(0.0, -0.5);
+        collideAt(64.2, false, motion, FLOOR);
+
+        assertEquals(0.0, motion.vx, EPSILON);
+        assertEquals(-0.2, motion.vy, EPSILON);
+    }
+
+    @Test
+    void leavesMotionAloneWithoutBoxes() {
+        MotionState motion = walkEast(0.3, -0.0784);
+        collideAt(64.0, true, motion);
+
+        assertEquals(0.3, motion.vx, 0.0);
+        assertEquals(-0.0784, motion.vy, 0.0);
+    }
+
+    private static MotionState walkEast(double vx, double vy) {
+        MotionState motion = new MotionState();
+        motion.set(0.5, 64.0, 0.5, vx, vy, 0.0);
+        return motion;
+    }
+
+    private static void collideAt(double feetY, boolean canStep, MotionState motion, double[]... boxes) {
+        SweepCollision.collide(0.2, feetY, 0.2, 0.8, feetY + 1.8, 0.8, STEP_HEIGHT, canStep, new Boxes(boxes), motion);
+    }
+
+    private static final class Boxes implements Collider {
+        private final double[] flat;
+
+        Boxes(double[]... boxes) {
+            this.flat = new double[boxes.length * STRIDE];
+            for (int i = 0; i < boxes.length; i++) {
+                System.arraycopy(boxes[i], 0, flat, i * STRIDE, STRIDE);
+            }
+        }
+
+        @Override
+        public int getBoxCount() {
+            return flat.length / STRIDE;
+        }
+
+        @Override
+        public double[] getBoxes() {
+            return flat;
+        }
+    }
+}
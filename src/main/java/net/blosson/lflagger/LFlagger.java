@@ -1,8 +1,19 @@
 package net.blosson.lflagger;
 
 import net.blosson.lflagger.checks.CheckManager;
+import net.blosson.lflagger.command.LFlaggerCommand;
 import net.blosson.lflagger.config.ConfigManager;
+import net.blosson.lflagger.flaglog.FlagLog;
+import net.blosson.lflagger.profiling.Profiler;
+import net.blosson.lflagger.profiling.StatsOverlay;
+import net.blosson.lflagger.util.TimingService;
 import net.fabricmc.api.ClientModInitializer;
+import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
+import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
+import net.fabricmc.fabric.api.client.rendering.v1.hud.HudElementRegistry;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.util.Identifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,6 +30,28 @@ public class LFlagger implements ClientModInitializer {
         INSTANCE = this;
         this.configManager = ConfigManager.getInstance();
         this.checkManager = new CheckManager();
+        // Make sure a session recording and the flag log are fully written out when the game closes.
+        ClientLifecycleEvents.CLIENT_STOPPING.register(client -> {
+            checkManager.closeRecorder();
+            FlagLog.getInstance().close();
+            configManager.stopWatching();
+        });
+        // Tick rate, jitter and latencies belong to one connection, and each joined server starts its own flag log.
+        // The timing service is client-thread only, and a disconnect is not guaranteed to be reported on that thread.
+        ClientPlayConnectionEvents.JOIN.register((handler, sender, client) -> {
+            TimingService.getInstance().onConnectionChanged();
+            FlagLog.getInstance().startSession();
+        });
+        ClientPlayConnectionEvents.DISCONNECT.register((handler, client) -> client.execute(
+                () -> TimingService.getInstance().onConnectionChanged()));
+
+        Profiler.setEnabled(configManager.getConfig().getPerformance().profiling);
+        // Edits to lflagger.json apply while the game runs. The profiler flag is only written on the client thread.
+        configManager.addListener(config -> MinecraftClient.getInstance().execute(
+                () -> Profiler.setEnabled(config.getPerformance().profiling)));
+        configManager.startWatching();
+        ClientCommandRegistrationCallback.EVENT.register((dispatcher, registryAccess) -> LFlaggerCommand.register(dispatcher));
+        HudElementRegistry.addLast(Identifier.of(MOD_ID, "stats"), new StatsOverlay());
         LOGGER.info("LFlagger initialized. Managers have been set up.");
     }
 
@@ -1,13 +1,13 @@
 package net.blosson.lflagger.checks;
 
 import net.blosson.lflagger.config.ConfigManager;
+import net.blosson.lflagger.data.PlayerFrame;
 import net.blosson.lflagger.data.PlayerState;
+import net.blosson.lflagger.profiling.LatencyHistogram;
+import net.blosson.lflagger.profiling.Profiler;
 import net.blosson.lflagger.simulation.SimulatedPlayer;
+import net.blosson.lflagger.util.AlertManager;
 import net.blosson.lflagger.util.object.ObjectPool;
-import net.minecraft.client.MinecraftClient;
-import net.minecraft.entity.player.PlayerEntity;
-import net.minecraft.text.Text;
-import net.minecraft.util.Formatting;
 
 /**
  * The abstract base class for all cheat detections.
@@ -17,13 +17,17 @@ import net.minecraft.util.Formatting;
  * and methods to reduce boilerplate code in concrete implementations. This includes
  * direct access to the {@link ConfigManager}, a helper for player validation, and
  * standardized methods for flagging suspicious behavior.
+ * <p>
+ * Checks read their settings through a {@link net.blosson.lflagger.config.ConfigCache}, which resolves
+ * them into a small record once per config snapshot, so a reloaded config applies on the next tick.
  */
 public abstract class Check {
 
     private final String name;
     private final String description;
+    private final int id;
+    private final LatencyHistogram timer;
     protected final ConfigManager configManager = ConfigManager.getInstance();
-    protected final MinecraftClient client = MinecraftClient.getInstance();
 
     /**
      * Constructs a new Check.
@@ -33,6 +37,8 @@ public abstract class Check {
     public Check(String name, String description) {
         this.name = name;
         this.description = description;
+        this.id = CheckRegistry.register(name);
+        this.timer = Profiler.timer("check." + name);
     }
 
     /**
@@ -42,6 +48,20 @@ public abstract class Check {
         return name;
     }
 
+    /**
+     * @return The dense ID of the check, used to index per-player arrays such as violation levels.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return The histogram the {@link CheckManager} records this check's tick durations into.
+     */
+    public LatencyHistogram getTimer() {
+        return timer;
+    }
+
     /**
      * @return The description of the check.
      */
@@ -52,12 +72,16 @@ public abstract class Check {
     /**
      * The core logic method for the check. This is called by the {@link CheckManager}
      * for every player on every game tick.
+     * <p>
+     * This may run on a worker thread. Implementations must read the player through the
+     * {@link PlayerFrame} rather than the live entity, and must not keep shared mutable state
+     * outside of the given {@link PlayerState}, which is only ever ticked by one thread at a time.
      *
-     * @param player The {@link PlayerEntity} being checked in the current tick.
+     * @param frame The {@link PlayerFrame} captured for the player being checked in the current tick.
      * @param state The {@link PlayerState} object containing this player's tracked data.
-     * @param simulatorPool The global {@link ObjectPool} for acquiring and releasing {@link SimulatedPlayer} instances.
+     * @param simulatorPool The shared, thread-safe {@link ObjectPool} for acquiring and releasing {@link SimulatedPlayer} instances.
      */
-    public abstract void tick(PlayerEntity player, PlayerState state, ObjectPool<SimulatedPlayer> simulatorPool);
+    public abstract void tick(PlayerFrame frame, PlayerState state, ObjectPool<SimulatedPlayer> simulatorPool);
 
     /**
      * A utility method to perform common validation checks before running detection logic.
@@ -65,17 +89,16 @@ public abstract class Check {
      * This helps reduce boilerplate code in subclasses by handling standard exclusion cases.
      * It should typically be the first call inside the {@link #tick} method.
      *
-     * @param player The player to validate.
+     * @param frame The player frame to validate.
      * @return {@code true} if the player should be ignored by the check (e.g., they are the local player
      *         or in creative mode), {@code false} otherwise.
      */
-    protected boolean isInvalid(PlayerEntity player) {
+    protected boolean isInvalid(PlayerFrame frame) {
         // Ignore players in creative/spectator mode, or players who are allowed to fly.
-        if (client.player == null) return true;
-        if (player.getAbilities().allowFlying) {
+        if (frame.allowFlying) {
             return true;
         }
-        return !canCheckLocalPlayer() && player.getUuid().equals(client.player.getUuid());
+        return !canCheckLocalPlayer() && frame.mainPlayer;
     }
 
     public boolean canCheckLocalPlayer() {
@@ -91,40 +114,27 @@ public abstract class Check {
     public abstract boolean isEnabled();
 
     /**
-     * Sends a formatted flag message to the client's chat, including a certainty level.
+     * Reports a flag with a certainty level. The flag is recorded as a primitive event and shown, or
+     * coalesced with earlier flags of the same player and check, once the current tick's checks have finished.
      *
-     * @param player The player suspected of cheating.
+     * @param frame The player suspected of cheating.
      * @param certainty The calculated certainty of the cheat detection, from 0.0 to 100.0.
      */
-    protected void flag(PlayerEntity player, double certainty) {
+    protected void flag(PlayerFrame frame, double certainty) {
         // Do not flag if certainty is zero, as this can be triggered by vanilla behavior.
         if (certainty <= 0) {
             return;
         }
-        // Format the detection message as specified
-        Text message = Text.literal("[LFlagger] ").formatted(Formatting.RED)
-                .append(Text.literal(player.getName().getString() + " ").formatted(Formatting.WHITE))
-                .append(Text.literal("is suspected of using ").formatted(Formatting.GRAY))
-                .append(Text.literal(this.name + " ").formatted(Formatting.AQUA))
-                .append(Text.literal("(Certainty: " + String.format("%.2f", certainty) + "%)").formatted(Formatting.YELLOW));
-
-        // Send the message to the client's chat
-        client.inGameHud.getChatHud().addMessage(message);
+        AlertManager.flag(frame.worldTime, frame.entityId, frame.name, id, certainty);
     }
 
     /**
-     * Sends a formatted flag message to the client's chat without a certainty level.
+     * Reports a flag without a certainty level. The flag is recorded as a primitive event and shown, or
+     * coalesced with earlier flags of the same player and check, once the current tick's checks have finished.
      *
-     * @param player The player suspected of cheating.
+     * @param frame The player suspected of cheating.
      */
-    protected void flag(PlayerEntity player) {
-        // Format the detection message as specified
-        Text message = Text.literal("[LFlagger] ").formatted(Formatting.RED)
-                .append(Text.literal(player.getName().getString() + " ").formatted(Formatting.WHITE))
-                .append(Text.literal("is suspected of using ").formatted(Formatting.GRAY))
-                .append(Text.literal(this.name).formatted(Formatting.AQUA));
-
-        // Send the message to the client's chat
-        client.inGameHud.getChatHud().addMessage(message);
+    protected void flag(PlayerFrame frame) {
+        AlertManager.flag(frame.worldTime, frame.entityId, frame.name, id, Double.NaN);
     }
-}
\ No newline at end of file
+}
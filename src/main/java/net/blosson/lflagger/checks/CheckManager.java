@@ -1,16 +1,35 @@
 package net.blosson.lflagger.checks;
 
+import net.blosson.lflagger.LFlagger;
+import net.blosson.lflagger.config.ConfigCache;
+import net.blosson.lflagger.config.ModConfig;
+import net.blosson.lflagger.data.EntityHistory;
+import net.blosson.lflagger.data.EnvironmentSnapshot;
+import net.blosson.lflagger.data.PlayerFrame;
+import net.blosson.lflagger.data.PlayerGrid;
 import net.blosson.lflagger.data.PlayerState;
+import net.blosson.lflagger.data.WorldSnapshot;
+import net.blosson.lflagger.profiling.LatencyHistogram;
+import net.blosson.lflagger.profiling.Profiler;
+import net.blosson.lflagger.replay.SessionRecorder;
 import net.blosson.lflagger.simulation.SimulatedPlayer;
+import net.blosson.lflagger.simulation.SimulationCache;
+import net.blosson.lflagger.util.AlertManager;
+import net.blosson.lflagger.util.TimingService;
 import net.blosson.lflagger.util.object.ObjectPool;
 import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.util.math.Vec3d;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -23,18 +42,67 @@ import java.util.stream.Collectors;
  * 2.  <b>Player State Management:</b> It maintains a map of {@link PlayerState} objects, creating a new
  *     one for each player that appears and crucially, removing it when the player disconnects
  *     to prevent memory leaks.
- * 3.  <b>Tick-Based Execution:</b> It is called every game tick for every player, and it, in turn,
+ * 3.  <b>Tick-Based Execution:</b> It is called every game tick with all players, and it, in turn,
  *     calls the {@code tick} method on every loaded check, driving the detection process.
+ * <p>
+ * Each tick runs in three phases. First, on the client thread, the {@link CheckScheduler} decides which
+ * players are checked, and a {@link PlayerFrame} is captured for every player, together with a
+ * {@link WorldSnapshot} of the blocks around the checked ones when the previous one is stale. Then the
+ * players are spread over a small worker pool, one player per task, so that all checks of a player run
+ * on the same thread in order. The client thread waits for the workers before moving on,
+ * so player states are never touched by two threads at once. Once the {@link TickBudget} is used up,
+ * the remaining players are deferred to the next tick. Remote players are only checked on ticks on which
+ * the server sent movement for them, see {@link #onServerMove}. Finally, again on the client thread,
+ * queued flags are shown and the player states are advanced.
  */
 public class CheckManager {
 
+    /** The performance settings read on every tick. */
+    private record Settings(int tickBudgetMicros, boolean packetDrivenChecks, boolean recordSessions,
+                            boolean poolDebug, int workerThreads) {
+        static Settings of(ModConfig config) {
+            ModConfig.PerformanceConfig section = config.getPerformance();
+            return new Settings(section.tickBudgetMicros, section.packetDrivenChecks, section.recordSessions,
+                    section.poolDebug, section.workerThreads);
+        }
+    }
+
+    private final ConfigCache<Settings> settings = new ConfigCache<>(Settings::of);
+
     private final List<Check> checks = new ArrayList<>();
     private final Map<UUID, PlayerState> playerStates = new ConcurrentHashMap<>();
-    private final ObjectPool<SimulatedPlayer> simulatorPool;
+    // Use an object pool for SimulatedPlayer to improve performance by recycling objects.
+    // The pool is thread-safe and keeps a small cache per thread, so all workers share it.
+    private final ObjectPool<SimulatedPlayer> simulatorPool =
+            new ObjectPool<>("simulatedPlayer", SimulatedPlayer::new, 32); // Pool up to 32 idle simulator objects
+
+    // Per-tick work lists, reused between ticks. Only touched on the client thread, apart from
+    // the workers reading them while the client thread waits.
+    private final List<PlayerFrame> frames = new ArrayList<>();
+    private final List<PlayerState> states = new ArrayList<>();
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    /** How often, in ticks, the world snapshot statistics are logged. */
+    private static final int STATISTICS_INTERVAL_TICKS = 20 * 60;
+    private int ticksSinceStatistics;
+
+    private SessionRecorder recorder;
+
+    /** Where every player checked this tick is, for proximity queries. */
+    private final PlayerGrid grid = new PlayerGrid();
+    private static final LatencyHistogram GRID_TIMER = Profiler.timer("grid.update");
+    /** Scratch buffer for grid queries made on the client thread. */
+    private final PlayerState[] nearbyStates = new PlayerState[64];
+    /** Blocks a world snapshot reaches from the player's position, plus one for the player's own block. */
+    private static final int SNAPSHOT_REACH = Math.max(WorldSnapshot.RADIUS_HORIZONTAL, WorldSnapshot.RADIUS_UP) + 2;
+
+    private final CheckScheduler scheduler = new CheckScheduler();
+    private final TickBudget budget = new TickBudget();
+
+    private ForkJoinPool workerPool;
+    private final List<Callable<Void>> workers = new ArrayList<>();
 
     public CheckManager() {
-        // Use an object pool for SimulatedPlayer to improve performance by recycling objects.
-        this.simulatorPool = new ObjectPool<>(SimulatedPlayer::new, 20); // Pool up to 20 simulator objects
         loadChecks();
     }
 
@@ -51,10 +119,11 @@ public class CheckManager {
             checks.add(new net.blosson.lflagger.checks.list.SpeedCheck());
             checks.add(new net.blosson.lflagger.checks.list.StrafeCheck());
             checks.add(new net.blosson.lflagger.checks.list.MovementCheck());
+            checks.add(new net.blosson.lflagger.checks.list.ReachCheck());
 
             // Log the successful loading of each check.
             for (Check check : checks) {
-                System.out.println("[LFlagger] Loaded check: " + check.getName());
+                System.out.println("[LFlagger] Loaded check: " + check.getName() + " (id " + check.getId() + ")");
             }
         } catch (Exception e) {
             // This will catch any unexpected errors during check instantiation.
@@ -64,24 +133,392 @@ public class CheckManager {
     }
 
     /**
-     * The main entry point for processing a player's movement and actions for a single game tick.
-     * It retrieves or creates the player's state, runs all active checks, and then updates the
-     * state for the next tick.
+     * The main entry point for processing player movement and actions for a single game tick.
+     * It retrieves or creates each player's state, runs all active checks, and then updates the
+     * states for the next tick. Must be called on the client thread.
+     *
+     * @param viewer The local player, used to decide how often each player is checked.
+     * @param players The players to check.
+     */
+    public void tick(PlayerEntity viewer, List<? extends PlayerEntity> players) {
+        Settings config = settings.get();
+        budget.begin(System.nanoTime(), config.tickBudgetMicros());
+        frames.clear();
+        states.clear();
+
+        // Capture everything the checks need while the client thread still owns the entities.
+        for (PlayerEntity player : players) {
+            // Get or create the state for the player.
+            PlayerState state = playerStates.computeIfAbsent(player.getUuid(), u -> new PlayerState(player));
+            if (state.gridSlot < 0) {
+                // Block changes are only routed to players in the grid, so a player who was out of range
+                // may have missed some.
+                state.worldSnapshotDirty = true;
+            }
+
+            boolean onScreen = player == viewer || CheckScheduler.isOnScreen(viewer, player);
+            boolean movementUpdate = player.isMainPlayer() || state.serverUpdatePending || state.serverPosition == null
+                    || !config.packetDrivenChecks();
+            boolean check = scheduler.schedule(state, player.getEntityWorld().getTime(), player.isMainPlayer(),
+                    player.squaredDistanceTo(viewer), onScreen, movementUpdate);
+            if (check) {
+                // Copy the surrounding blocks so the checks never have to read the world themselves.
+                refreshWorldSnapshot(player, state);
+
+                // Capture the input-independent surroundings once, so every check and candidate can share them.
+                state.environment.update(player, state.worldSnapshot);
+            } else if (!state.worldSnapshotDirty && state.worldSnapshot != null && !state.worldSnapshot.isCenteredOn(player)) {
+                // Block changes are routed by the player's current position, so once a skipped player left the
+                // snapshot's center, changes inside it can be missed. Should they return before their next check,
+                // the snapshot would otherwise be reused as if nothing changed.
+                state.worldSnapshotDirty = true;
+            }
+
+            // The server sends no movement for the local player, so its history is sampled every tick.
+            if (player.isMainPlayer()) {
+                sampleLocalHistory(player, state.entityHistory);
+            }
+
+            // Skipped players are still captured, so their state keeps advancing every tick.
+            frames.add(new PlayerFrame(player, state, onScreen));
+            states.add(state);
+        }
+
+        if (config.recordSessions()) {
+            if (recorder == null) {
+                recorder = SessionRecorder.open();
+            }
+            if (recorder != null) {
+                recorder.recordTick(frames, states);
+            }
+        } else {
+            closeRecorder();
+        }
+
+        runTick();
+    }
+
+    /**
+     * Adds the local player's current position to their entity history.
+     * <p>
+     * Remote histories are keyed by when the server's view of a player arrived here, which trails the
+     * server by half a round trip. The local position is client-predicted and reaches the server half a
+     * round trip later, so it is what this client would have heard back from the server one full round
+     * trip from now. The sample is keyed by that time so both kinds of history share one time frame. The
+     * key never moves backwards, so a latency drop does not make the history look like a reset clock.
+     */
+    private static void sampleLocalHistory(PlayerEntity player, EntityHistory history) {
+        long time = System.nanoTime() + TimingService.getInstance().getLatency(player.getUuid()) * 1_000_000L;
+        if (!history.isEmpty()) {
+            time = Math.max(time, history.getNewestTime());
+        }
+        Vec3d position = player.getEntityPos();
+        history.add(time, position.x, position.y, position.z,
+                player.getWidth(), player.getHeight(), player.getStandingEyeHeight());
+    }
+
+    /**
+     * Runs the checks for one recorded tick, without any world or player entities. Used by the
+     * headless replay driver. No time budget applies, so a replay always checks the same players.
      *
-     * @param player The player to check.
+     * @param recordedFrames The frames recorded for the tick.
+     * @param environments The environment snapshots recorded alongside the frames, in the same order.
      */
-    public void tick(PlayerEntity player) {
-        // Get or create the state for the player.
-        PlayerState state = playerStates.computeIfAbsent(player.getUuid(), u -> new PlayerState(player));
+    public void replayTick(List<PlayerFrame> recordedFrames, List<EnvironmentSnapshot> environments) {
+        budget.begin(System.nanoTime(), 0);
+        frames.clear();
+        states.clear();
 
-        // Tick all loaded checks for the player.
-        for (Check check : checks) {
-            // Pass the player, their state, and the simulator pool to each check.
-            check.tick(player, state, simulatorPool);
+        // The local player's frame stands in for the viewer when scheduling.
+        PlayerFrame viewer = null;
+        for (PlayerFrame frame : recordedFrames) {
+            if (frame.mainPlayer) {
+                viewer = frame;
+                break;
+            }
         }
 
-        // After all checks have run, update the player's state for the next tick's comparisons.
-        state.update();
+        for (int i = 0; i < recordedFrames.size(); i++) {
+            PlayerFrame frame = recordedFrames.get(i);
+            PlayerState state = playerStates.computeIfAbsent(frame.uuid, u -> new PlayerState(frame));
+            double distanceSquared = viewer == null ? 0.0 : frame.position.squaredDistanceTo(viewer.position);
+            scheduler.schedule(state, frame.worldTime, frame.mainPlayer, distanceSquared, frame.onScreen, frame.movementUpdate);
+            state.worldSnapshot = frame.worldSnapshot;
+            state.environment.copyFrom(environments.get(i));
+            frames.add(frame);
+            states.add(state);
+        }
+        runTick();
+    }
+
+    /**
+     * Runs the checks over the captured frames, then shows the resulting flags and advances the states.
+     */
+    private void runTick() {
+        long gridStart = Profiler.start();
+        grid.beginUpdate();
+        for (int i = 0; i < frames.size(); i++) {
+            Vec3d position = frames.get(i).position;
+            grid.update(states.get(i), position.x, position.y, position.z);
+        }
+        grid.endUpdate();
+        Profiler.stop(GRID_TIMER, gridStart);
+
+        Settings config = settings.get();
+        simulatorPool.setDebug(config.poolDebug());
+        int workerThreads = config.workerThreads();
+        if (workerThreads <= 0 || frames.size() <= 1) {
+            for (int position = 0; position < frames.size(); position++) {
+                runChecks(position);
+            }
+        } else {
+            runOnWorkers(workerThreads);
+        }
+        if (!frames.isEmpty()) {
+            budget.end(frames.size());
+        }
+        // Every simulator a check acquired must be back once the checks are done.
+        simulatorPool.checkBalance();
+        SimulationCache.endTick();
+
+        // Flags are shown and states advanced only once every check of the tick has finished.
+        AlertManager.flushPending();
+        for (int i = 0; i < states.size(); i++) {
+            states.get(i).update(frames.get(i));
+        }
+
+        if (++ticksSinceStatistics >= STATISTICS_INTERVAL_TICKS) {
+            ticksSinceStatistics = 0;
+            LFlagger.LOGGER.debug("World snapshots: {} captured, {} reused, {} us per capture",
+                    WorldSnapshot.getCaptures(), WorldSnapshot.getReuses(),
+                    String.format("%.1f", WorldSnapshot.getAverageCaptureMicros()));
+            LFlagger.LOGGER.debug("Server timing: {} TPS, {} ms jitter",
+                    String.format("%.2f", TimingService.getInstance().getTps()),
+                    String.format("%.1f", TimingService.getInstance().getJitterMillis()));
+            LFlagger.LOGGER.debug("Object pool {}", simulatorPool.formatStats());
+            LFlagger.LOGGER.debug("Simulation cache: {} hits, {} misses",
+                    SimulationCache.getHits(), SimulationCache.getMisses());
+            LFlagger.LOGGER.debug("Player grid: {} players, {} cell changes", grid.size(), grid.getCellChanges());
+            LFlagger.LOGGER.debug("Scheduler: {} player ticks checked, {} skipped, {} without a movement update",
+                    scheduler.getChecked(), scheduler.getSkipped(), scheduler.getAwaitingUpdate());
+            LFlagger.LOGGER.debug("Tick budget: exhausted on {}% of ticks, {} players deferred, {} ticks average delay, {} ticks max delay",
+                    String.format("%.1f", budget.getExhaustedRate() * 100.0), budget.getDeferredPlayerTicks(),
+                    String.format("%.2f", budget.getAverageDelayTicks()), budget.getMaxDelayTicks());
+        }
+    }
+
+    /**
+     * Recaptures a player's world snapshot if they moved to another block or a block inside it changed,
+     * and keeps the existing one otherwise.
+     */
+    private void refreshWorldSnapshot(PlayerEntity player, PlayerState state) {
+        if (!state.worldSnapshotDirty && state.worldSnapshot != null && state.worldSnapshot.isCenteredOn(player)) {
+            WorldSnapshot.recordReuse();
+            return;
+        }
+        state.worldSnapshot = WorldSnapshot.capture(player);
+        state.worldSnapshotDirty = false;
+    }
+
+    /**
+     * Runs every loaded check for the player at a round-robin position, unless the scheduler skipped
+     * them this tick or the tick budget is used up, in which case they are deferred to the next tick.
+     */
+    private void runChecks(int position) {
+        int index = budget.indexOf(position, frames.size());
+        PlayerFrame frame = frames.get(index);
+        PlayerState state = states.get(index);
+        if (!state.checkedThisTick) {
+            return;
+        }
+        if (budget.shouldDefer(position)) {
+            state.checkedThisTick = false;
+            state.deferredTicks++;
+            return;
+        }
+        if (state.deferredTicks > 0) {
+            budget.recordCatchUp(state.deferredTicks);
+            state.deferredTicks = 0;
+        }
+        state.lastCheckedTick = frame.worldTime;
+
+        try {
+            for (Check check : checks) {
+                // Pass the frame, the player's state, and the simulator pool to each check.
+                long start = Profiler.start();
+                check.tick(frame, state, simulatorPool);
+                Profiler.stop(check.getTimer(), start);
+            }
+        } catch (RuntimeException e) {
+            // A single broken check should not take the remaining players down with it.
+            LFlagger.LOGGER.error("Error while checking player {}", frame.name, e);
+        }
+    }
+
+    /**
+     * Spreads the captured players over the worker pool and blocks until all of them are checked.
+     */
+    private void runOnWorkers(int workerThreads) {
+        if (workerPool == null || workerPool.getParallelism() != workerThreads) {
+            if (workerPool != null) {
+                workerPool.shutdown();
+            }
+            workerPool = createWorkerPool(workerThreads);
+            workers.clear();
+            for (int i = 0; i < workerThreads; i++) {
+                workers.add(this::drainPlayers);
+            }
+        }
+
+        cursor.set(0);
+        // invokeAll only returns once every worker is done, which keeps the world stable for them.
+        workerPool.invokeAll(workers);
+    }
+
+    /**
+     * Repeatedly claims the next unchecked player until none are left. Run by each worker.
+     */
+    private Void drainPlayers() {
+        int position;
+        while ((position = cursor.getAndIncrement()) < frames.size()) {
+            runChecks(position);
+        }
+        return null;
+    }
+
+    private static ForkJoinPool createWorkerPool(int parallelism) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("LFlagger Check Worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Called when the server moves a remote player, so that their next frame uses the server's position
+     * and the checks run once for the update. The position is also added to the player's
+     * {@link EntityHistory} for lag compensation. Must be called on the client thread.
+     *
+     * @param player The moved player, whose tracked position already holds the position the server sent.
+     * @param teleport Whether the player was teleported rather than moved.
+     */
+    public void onServerMove(PlayerEntity player, boolean teleport) {
+        PlayerState state = playerStates.get(player.getUuid());
+        if (state != null) {
+            Vec3d position = player.getTrackedPosition().getPos();
+            state.onServerMove(position, player.getEntityWorld().getTime(), teleport);
+            state.entityHistory.add(System.nanoTime(), position.x, position.y, position.z,
+                    player.getWidth(), player.getHeight(), player.getStandingEyeHeight());
+        }
+    }
+
+    /**
+     * Called when the server reports that a player hit another player in melee, so that the attacker's
+     * next check can verify the reach. Must be called on the client thread.
+     *
+     * @param attacker The attacking player.
+     * @param target The player that was hit.
+     */
+    public void onPlayerAttack(PlayerEntity attacker, PlayerEntity target) {
+        PlayerState attackerState = playerStates.get(attacker.getUuid());
+        PlayerState targetState = playerStates.get(target.getUuid());
+        if (attackerState != null && targetState != null) {
+            attackerState.addAttack(targetState.entityHistory, System.nanoTime(),
+                    TimingService.getInstance().getLatency(attacker.getUuid()), attacker.getEntityInteractionRange());
+        }
+    }
+
+    /**
+     * Called when the server adds or removes a status effect on a player, so that the cached
+     * effect amplifiers in their environment snapshot are re-read on the next tick.
+     *
+     * @param playerUuid The UUID of the affected player.
+     */
+    public void onEffectsChanged(UUID playerUuid) {
+        PlayerState state = playerStates.get(playerUuid);
+        if (state != null) {
+            state.environment.invalidateEffects();
+        }
+    }
+
+    /**
+     * Called when the server changes a single block, so that any world snapshot containing it is
+     * recaptured on the next tick.
+     *
+     * @param x The block's X coordinate.
+     * @param y The block's Y coordinate.
+     * @param z The block's Z coordinate.
+     */
+    public void onBlockChanged(int x, int y, int z) {
+        int found = grid.queryBox(x - SNAPSHOT_REACH, y - SNAPSHOT_REACH, z - SNAPSHOT_REACH,
+                x + SNAPSHOT_REACH + 1, y + SNAPSHOT_REACH + 1, z + SNAPSHOT_REACH + 1, nearbyStates);
+        if (found == nearbyStates.length) {
+            // More players nearby than the buffer holds. Rare enough to simply check them all.
+            for (PlayerState state : playerStates.values()) {
+                markIfContains(state, x, y, z);
+            }
+            return;
+        }
+        for (int i = 0; i < found; i++) {
+            markIfContains(nearbyStates[i], x, y, z);
+            nearbyStates[i] = null;
+        }
+    }
+
+    private static void markIfContains(PlayerState state, int x, int y, int z) {
+        if (state.worldSnapshot != null && state.worldSnapshot.contains(x, y, z)) {
+            state.worldSnapshotDirty = true;
+        }
+    }
+
+    /**
+     * Called when the server sends or unloads a whole chunk, so that any world snapshot overlapping it
+     * is recaptured on the next tick.
+     *
+     * @param chunkX The chunk's X coordinate.
+     * @param chunkZ The chunk's Z coordinate.
+     */
+    public void onChunkChanged(int chunkX, int chunkZ) {
+        int minX = chunkX << 4;
+        int minZ = chunkZ << 4;
+        int found = grid.queryBox(minX - SNAPSHOT_REACH, Double.NEGATIVE_INFINITY, minZ - SNAPSHOT_REACH,
+                minX + 16 + SNAPSHOT_REACH, Double.POSITIVE_INFINITY, minZ + 16 + SNAPSHOT_REACH, nearbyStates);
+        if (found == nearbyStates.length) {
+            for (PlayerState state : playerStates.values()) {
+                markIfOverlaps(state, chunkX, chunkZ);
+            }
+            return;
+        }
+        for (int i = 0; i < found; i++) {
+            markIfOverlaps(nearbyStates[i], chunkX, chunkZ);
+            nearbyStates[i] = null;
+        }
+    }
+
+    private static void markIfOverlaps(PlayerState state, int chunkX, int chunkZ) {
+        if (state.worldSnapshot != null && state.worldSnapshot.overlapsChunk(chunkX, chunkZ)) {
+            state.worldSnapshotDirty = true;
+        }
+    }
+
+    /**
+     * @return The grid of the players checked on the last tick. Maintained on the client thread at the
+     *         start of each tick; checks may query it while they run.
+     */
+    public PlayerGrid getPlayerGrid() {
+        return grid;
+    }
+
+    /**
+     * Flushes and closes the session recording, if one is open.
+     */
+    public void closeRecorder() {
+        if (recorder != null) {
+            recorder.close();
+            recorder = null;
+        }
     }
 
     /**
@@ -91,7 +528,9 @@ public class CheckManager {
      * @param playerUuid The UUID of the player who left.
      */
     public void onPlayerLeave(UUID playerUuid) {
-        if (playerStates.remove(playerUuid) != null) {
+        PlayerState state = playerStates.remove(playerUuid);
+        if (state != null) {
+            grid.remove(state);
             System.out.println("[LFlagger] Cleaned up state for player " + playerUuid);
         }
     }
@@ -0,0 +1,54 @@
+package net.blosson.lflagger.checks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Assigns every check a dense integer ID, so per-player data can be kept in plain arrays indexed
+ * by check instead of maps keyed by name.
+ * <p>
+ * IDs are handed out by name when a {@link Check} is constructed, i.e. when the {@link CheckManager}
+ * loads its checks. A name that is registered again keeps its ID, so several managers, such as one per
+ * replay pass, see the same IDs.
+ */
+public final class CheckRegistry {
+
+    private static final List<String> names = new ArrayList<>();
+
+    private CheckRegistry() {}
+
+    /**
+     * @return The ID for the given check name, assigning the next free one if it is new.
+     */
+    static synchronized int register(String name) {
+        int id = names.indexOf(name);
+        if (id < 0) {
+            names.add(name);
+            id = names.size() - 1;
+        }
+        return id;
+    }
+
+    /**
+     * Looks up a check ID by name. This is the slow path, meant for commands and tooling.
+     *
+     * @return The ID, or {@code -1} if no check with that name has been loaded.
+     */
+    public static synchronized int getId(String name) {
+        return names.indexOf(name);
+    }
+
+    /**
+     * @return The name of the check with the given ID.
+     */
+    public static synchronized String getName(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * @return The number of IDs handed out so far. Every ID is below this value.
+     */
+    public static synchronized int size() {
+        return names.size();
+    }
+}
@@ -0,0 +1,166 @@
+package net.blosson.lflagger.checks;
+
+import net.blosson.lflagger.config.ConfigCache;
+import net.blosson.lflagger.config.ModConfig;
+import net.blosson.lflagger.data.PlayerState;
+import net.blosson.lflagger.data.PositionHistory;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.util.math.Vec3d;
+
+/**
+ * Decides, per player and tick, whether the checks run at all, so that the check cost stays bounded
+ * in crowded areas.
+ * <p>
+ * Every player is assigned a check interval. The local player, players within
+ * {@code full_rate_distance}, and players with any violations are checked every tick. Beyond that the
+ * interval grows linearly with distance up to {@code max_check_interval} at {@code sampling_distance},
+ * and is halved for players on screen. Players that are not checked on a tick still have their state
+ * advanced, so the checks see correct per-tick deltas once they do run.
+ * <p>
+ * When a sampled player is checked again, the ticks skipped since the last check are caught up on by
+ * scanning their position history. A step that no vanilla movement can produce moves the player back to
+ * full rate for {@link #FULL_RATE_COOLDOWN_TICKS}, so the checks see it happen again. Players that had
+ * violations stay at full rate for the same cooldown after their levels decay.
+ * <p>
+ * Remote players are only checked on ticks on which a movement packet for them arrived, since there is
+ * nothing new to verify in between. The server sends player movement every other tick at most.
+ * <p>
+ * The scheduler is only used on the client thread, before the checks are fanned out.
+ */
+public class CheckScheduler {
+
+    private record Settings(boolean interestScheduling, double fullRateDistance, double samplingDistance,
+                            int maxCheckInterval) {
+        static Settings of(ModConfig config) {
+            ModConfig.PerformanceConfig section = config.getPerformance();
+            return new Settings(section.interestScheduling, section.fullRateDistance, section.samplingDistance,
+                    section.maxCheckInterval);
+        }
+    }
+
+    private final ConfigCache<Settings> settings = new ConfigCache<>(Settings::of);
+
+    /** How long a player stays at full rate after being suspicious. */
+    static final int FULL_RATE_COOLDOWN_TICKS = 100;
+    /** A horizontal step per tick above a sprint jump with Speed II, in blocks. */
+    private static final double CATCH_UP_HORIZONTAL_STEP = 0.8;
+    /** A rise per tick above a jump with Jump Boost II, in blocks. */
+    private static final double CATCH_UP_VERTICAL_STEP = 0.65;
+
+    private long checked;
+    private long skipped;
+    private long awaitingUpdate;
+
+    /**
+     * Decides whether a player is checked this tick, and records the decision in
+     * {@link PlayerState#checkedThisTick}. Players deferred by the {@link TickBudget} are always
+     * selected. {@link PlayerState#lastCheckedTick} is advanced by the {@code CheckManager} once the
+     * checks actually ran.
+     *
+     * @param state The player's state.
+     * @param worldTime The current world tick.
+     * @param mainPlayer Whether the player is the local player.
+     * @param distanceSquared The squared distance to the local player.
+     * @param onScreen Whether the player is inside the local player's view.
+     * @param movementUpdate Whether new movement arrived for the player, see {@code PlayerFrame.movementUpdate}.
+     * @return {@code true} if the checks should run for the player this tick.
+     */
+    public boolean schedule(PlayerState state, long worldTime, boolean mainPlayer, double distanceSquared,
+                            boolean onScreen, boolean movementUpdate) {
+        Settings config = settings.get();
+
+        boolean check;
+        if (!movementUpdate && state.deferredTicks == 0) {
+            check = false;
+            awaitingUpdate++;
+        } else if (!config.interestScheduling() || mainPlayer || state.lastCheckedTick < 0 || state.deferredTicks > 0) {
+            check = true;
+        } else {
+            if (state.hasViolations()) {
+                state.fullRateUntilTick = worldTime + FULL_RATE_COOLDOWN_TICKS;
+            }
+            int interval = worldTime < state.fullRateUntilTick ? 1 : interval(config, distanceSquared, onScreen);
+            check = worldTime - state.lastCheckedTick >= interval;
+        }
+
+        if (check) {
+            catchUp(state, worldTime);
+            checked++;
+        } else if (movementUpdate) {
+            skipped++;
+        }
+        state.checkedThisTick = check;
+        return check;
+    }
+
+    private static int interval(Settings config, double distanceSquared, boolean onScreen) {
+        double distance = Math.sqrt(distanceSquared);
+        if (distance <= config.fullRateDistance()) {
+            return 1;
+        }
+        int maxInterval = Math.min(Math.max(1, config.maxCheckInterval()), PositionHistory.CAPACITY - 1);
+        double span = Math.max(1.0, config.samplingDistance() - config.fullRateDistance());
+        double progress = Math.min(1.0, (distance - config.fullRateDistance()) / span);
+        int interval = 1 + (int) Math.round(progress * (maxInterval - 1));
+        return onScreen ? Math.max(1, interval / 2) : interval;
+    }
+
+    /**
+     * Scans the position samples recorded while the player was not checked for a step no vanilla
+     * movement can produce, and moves the player to full rate if one is found.
+     */
+    private static void catchUp(PlayerState state, long worldTime) {
+        if (state.lastCheckedTick < 0) {
+            return;
+        }
+        PositionHistory history = state.playerData.positionHistory;
+        int steps = (int) Math.min(worldTime - state.lastCheckedTick - 1, history.size() - 1);
+        for (int ago = 0; ago < steps; ago++) {
+            double dx = history.getX(ago) - history.getX(ago + 1);
+            double dy = history.getY(ago) - history.getY(ago + 1);
+            double dz = history.getZ(ago) - history.getZ(ago + 1);
+            if (dx * dx + dz * dz > CATCH_UP_HORIZONTAL_STEP * CATCH_UP_HORIZONTAL_STEP || dy > CATCH_UP_VERTICAL_STEP) {
+                state.fullRateUntilTick = worldTime + FULL_RATE_COOLDOWN_TICKS;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Tests whether a player is roughly inside the local player's view, using a cone around the look
+     * direction as wide as the field of view setting. Must be called on the client thread.
+     */
+    public static boolean isOnScreen(PlayerEntity viewer, PlayerEntity player) {
+        Vec3d look = viewer.getRotationVec(1.0f);
+        Vec3d toPlayer = player.getEntityPos().subtract(viewer.getEyePos());
+        double length = toPlayer.length();
+        if (length < 1.0e-4) {
+            return true;
+        }
+        double fov = MinecraftClient.getInstance().options.getFov().getValue();
+        // The setting is the vertical angle; using it as the half-angle also covers a wide screen horizontally.
+        return look.dotProduct(toPlayer) / length >= Math.cos(Math.toRadians(Math.min(fov, 90.0)));
+    }
+
+    /**
+     * @return The number of player ticks that were checked so far.
+     */
+    public long getChecked() {
+        return checked;
+    }
+
+    /**
+     * @return The number of player ticks that were skipped so far because no movement packet had arrived.
+     */
+    public long getAwaitingUpdate() {
+        return awaitingUpdate;
+    }
+
+    /**
+     * @return The number of player ticks that were skipped so far by the interest scheduling.
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+}
@@ -0,0 +1,116 @@
+package net.blosson.lflagger.checks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps the time a single client tick may spend running checks.
+ * <p>
+ * The budget is started when the {@link CheckManager} begins a tick. Players are then claimed in
+ * round-robin order, and once the budget is used up every remaining player is deferred instead of
+ * checked. The next tick starts with the first player that was deferred, so nobody is deferred twice
+ * in a row while others are checked. The first player of every tick is always checked, so the checks
+ * keep making progress even when capturing alone exceeds the budget.
+ * <p>
+ * Players may be claimed by several worker threads at once, so the per-tick bookkeeping is atomic.
+ */
+public class TickBudget {
+
+    private long deadline;
+    private boolean enabled;
+    /** The round-robin position at which the first player was deferred this tick, or {@code Integer.MAX_VALUE}. */
+    private final AtomicInteger firstDeferred = new AtomicInteger(Integer.MAX_VALUE);
+    /** The player list index the current tick starts at. */
+    private int start;
+
+    // Statistics, kept for the lifetime of the manager.
+    private long ticks;
+    private long exhaustedTicks;
+    private final LongAdder deferredPlayerTicks = new LongAdder();
+    private final LongAdder catchUps = new LongAdder();
+    private final LongAdder catchUpDelayTicks = new LongAdder();
+    private final AtomicInteger maxDelayTicks = new AtomicInteger();
+
+    /**
+     * Starts a new tick. Must be called before any player is claimed.
+     *
+     * @param startNanos The {@link System#nanoTime()} at which the tick started.
+     * @param budgetMicros The budget in microseconds, or 0 for none.
+     */
+    public void begin(long startNanos, int budgetMicros) {
+        enabled = budgetMicros > 0;
+        deadline = startNanos + budgetMicros * 1000L;
+        firstDeferred.set(Integer.MAX_VALUE);
+        ticks++;
+    }
+
+    /**
+     * Maps a claim position to an index into the tick's player list, starting after the players
+     * that were checked last time.
+     */
+    public int indexOf(int position, int playerCount) {
+        return (start + position) % playerCount;
+    }
+
+    /**
+     * @param position The round-robin position of the player about to be checked.
+     * @return {@code true} if the player should be deferred to the next tick.
+     */
+    public boolean shouldDefer(int position) {
+        if (!enabled || position == 0 || System.nanoTime() - deadline < 0) {
+            return false;
+        }
+        firstDeferred.accumulateAndGet(position, Math::min);
+        deferredPlayerTicks.increment();
+        return true;
+    }
+
+    /**
+     * Records that a player was checked after being deferred for some ticks.
+     */
+    public void recordCatchUp(int delayTicks) {
+        catchUps.increment();
+        catchUpDelayTicks.add(delayTicks);
+        maxDelayTicks.accumulateAndGet(delayTicks, Math::max);
+    }
+
+    /**
+     * Ends the tick and moves the round-robin start to the first deferred player, if any.
+     */
+    public void end(int playerCount) {
+        int deferred = firstDeferred.get();
+        if (deferred != Integer.MAX_VALUE) {
+            exhaustedTicks++;
+            start = (start + deferred) % playerCount;
+        }
+    }
+
+    /**
+     * @return The fraction of ticks on which the budget ran out.
+     */
+    public double getExhaustedRate() {
+        return ticks == 0 ? 0.0 : (double) exhaustedTicks / ticks;
+    }
+
+    /**
+     * @return The number of times a player was deferred.
+     */
+    public long getDeferredPlayerTicks() {
+        return deferredPlayerTicks.sum();
+    }
+
+    /**
+     * @return The average number of ticks a deferred player waited before being checked.
+     */
+    public double getAverageDelayTicks() {
+        long count = catchUps.sum();
+        return count == 0 ? 0.0 : (double) catchUpDelayTicks.sum() / count;
+    }
+
+    /**
+     * @return The longest any player has been deferred, in ticks.
+     */
+    public int getMaxDelayTicks() {
+        return maxDelayTicks.get();
+    }
+}
@@ -2,28 +2,33 @@ package net.blosson.lflagger.checks.list;
 
 import net.blosson.lflagger.checks.Check;
 import net.blosson.lflagger.data.PlayerData;
+import net.blosson.lflagger.data.PlayerFrame;
 import net.blosson.lflagger.data.PlayerState;
 import net.blosson.lflagger.physics.MovementSimulator;
 import net.blosson.lflagger.physics.PredictionResult;
 import net.blosson.lflagger.simulation.SimulatedPlayer;
 import net.blosson.lflagger.util.object.ObjectPool;
-import net.minecraft.entity.player.PlayerEntity;
 
 public class MovementCheck extends Check {
 
-    private final MovementSimulator movementSimulator = new MovementSimulator();
+    // The prediction engines keep per-search scratch state, so each worker thread gets its own simulator.
+    private final ThreadLocal<MovementSimulator> movementSimulator = ThreadLocal.withInitial(MovementSimulator::new);
 
     public MovementCheck() {
         super("Movement", "Detects impossible movement");
     }
 
     @Override
-    public void tick(PlayerEntity player, PlayerState state, ObjectPool<SimulatedPlayer> simulatorPool) {
-        PredictionResult result = movementSimulator.simulate(player, state);
-        double distance = result.predictedPosition().distanceTo(player.getEntityPos());
+    public void tick(PlayerFrame frame, PlayerState state, ObjectPool<SimulatedPlayer> simulatorPool) {
+        if (!frame.movementUpdate) {
+            // Nothing new arrived to verify. The next update is fitted over the whole gap.
+            return;
+        }
+        PredictionResult result = movementSimulator.get().simulate(frame, state);
+        double distance = result.predictedPosition().distanceTo(frame.position);
 
         if (distance > result.tolerance()) {
-            flag(player, distance);
+            flag(frame, distance);
         }
     }
 
@@ -1,11 +1,12 @@
 package net.blosson.lflagger.checks.list;
 
 import net.blosson.lflagger.checks.Check;
+import net.blosson.lflagger.config.ConfigCache;
 import net.blosson.lflagger.config.ModConfig;
+import net.blosson.lflagger.data.PlayerFrame;
 import net.blosson.lflagger.data.PlayerState;
 import net.blosson.lflagger.simulation.SimulatedPlayer;
 import net.blosson.lflagger.util.object.ObjectPool;
-import net.minecraft.entity.player.PlayerEntity;
 
 /**
  * REFACTOR: This check is now part of the new, centralized check system.
@@ -15,28 +16,37 @@ import net.minecraft.entity.player.PlayerEntity;
  */
 public class NoFallCheck extends Check {
 
+    private record Settings(boolean enabled, double maxFallDistance, int violationThreshold) {
+        static Settings of(ModConfig config) {
+            ModConfig.NoFallCheckConfig section = config.getNoFallCheck();
+            return new Settings(section.enabled, section.maxFallDistance, section.violationThreshold);
+        }
+    }
+
+    private final ConfigCache<Settings> settings = new ConfigCache<>(Settings::of);
+
     public NoFallCheck() {
         super("NoFall", "Detects players surviving falls from impossible heights.");
     }
 
     @Override
-    public void tick(PlayerEntity player, PlayerState state, ObjectPool<SimulatedPlayer> pool) {
-        if (!isEnabled() || isInvalid(player)) {
+    public void tick(PlayerFrame frame, PlayerState state, ObjectPool<SimulatedPlayer> pool) {
+        if (!isEnabled() || isInvalid(frame)) {
             return;
         }
 
         // Check if the player has just landed.
-        if (!state.wasOnGround && player.isOnGround()) {
-            ModConfig.NoFallCheckConfig config = configManager.getConfig().getNoFallCheck();
+        if (!state.wasOnGround && frame.onGround) {
+            Settings config = settings.get();
 
             // Use the player's actual fallDistance, which is reset by the game after landing.
             // state.lastFallDistance now correctly stores the value from the previous tick.
-            if (state.lastFallDistance > config.maxFallDistance) {
+            if (state.lastFallDistance > config.maxFallDistance()) {
                 // A player cannot survive a fall greater than 3 blocks without taking damage.
                 // If they received no damage (hurtTime is 0), it's a very high-certainty flag.
-                if (player.hurtTime == 0) {
-                     if (state.increaseViolationLevel(getName()) > config.violationThreshold) {
-                        flag(player, 100.0);
+                if (frame.hurtTime == 0) {
+                     if (state.increaseViolationLevel(getId()) > config.violationThreshold()) {
+                        flag(frame, 100.0);
                     }
                 }
             }
@@ -48,6 +58,6 @@ public class NoFallCheck extends Check {
 
     @Override
     public boolean isEnabled() {
-        return configManager.getConfig().getNoFallCheck().enabled;
+        return settings.get().enabled();
     }
 }
\ No newline at end of file
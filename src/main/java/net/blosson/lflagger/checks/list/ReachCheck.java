@@ -0,0 +1,121 @@
+package net.blosson.lflagger.checks.list;
+
+import net.blosson.lflagger.checks.Check;
+import net.blosson.lflagger.config.ConfigCache;
+import net.blosson.lflagger.config.ModConfig;
+import net.blosson.lflagger.data.EntityHistory;
+import net.blosson.lflagger.data.PlayerFrame;
+import net.blosson.lflagger.data.PlayerState;
+import net.blosson.lflagger.simulation.SimulatedPlayer;
+import net.blosson.lflagger.util.object.ObjectPool;
+
+import java.util.Arrays;
+
+/**
+ * Detects players hitting others from further away than the interaction range allows.
+ * <p>
+ * Melee hits are queued on the attacker's {@link PlayerState} as they arrive, together with the attacker's
+ * entity interaction range at that moment, which attributes and game modes change. When the attacker is
+ * checked, each hit is verified against the target's {@link EntityHistory}: the attacker's eye is taken
+ * at the time the hit arrived, and the target is rewound by the attacker's latency, since that is where
+ * the attacker saw them when swinging. The shortest distance within one tick around that time is used,
+ * to allow for the server and the client interpolating at slightly different moments.
+ */
+public class ReachCheck extends Check {
+
+    private record Settings(boolean enabled, double reachTolerance, int violationThreshold) {
+        static Settings of(ModConfig config) {
+            ModConfig.ReachCheckConfig section = config.getReachCheck();
+            return new Settings(section.enabled, section.reachTolerance, section.violationThreshold);
+        }
+    }
+
+    private final ConfigCache<Settings> settings = new ConfigCache<>(Settings::of);
+
+    private static final double MAX_CERTAINTY = 100.0;
+    /** How far around the rewound time the target is also tried, one tick. */
+    private static final long COMPENSATION_WINDOW_NANOS = 50_000_000L;
+
+    public ReachCheck() {
+        super("Reach", "Detects players attacking from further away than the interaction range.");
+    }
+
+    @Override
+    public void tick(PlayerFrame frame, PlayerState state, ObjectPool<SimulatedPlayer> pool) {
+        int attacks = state.pendingAttacks;
+        state.pendingAttacks = 0;
+        if (attacks == 0) {
+            return;
+        }
+        if (!isEnabled() || isInvalid(frame) || state.entityHistory.isEmpty()) {
+            Arrays.fill(state.attackTargets, 0, attacks, null);
+            return;
+        }
+
+        Settings config = settings.get();
+        for (int i = 0; i < attacks; i++) {
+            EntityHistory target = state.attackTargets[i];
+            state.attackTargets[i] = null;
+            if (target.isEmpty()) {
+                continue;
+            }
+
+            double reach = reach(state.entityHistory, target, state.attackTimes[i], state.attackLatencies[i]);
+            if (Double.isNaN(reach)) {
+                // The target's history does not reach back far enough to verify the hit.
+                continue;
+            }
+            double maxReach = state.attackRanges[i] + config.reachTolerance();
+            if (reach > maxReach) {
+                if (state.increaseViolationLevel(getId()) > config.violationThreshold()) {
+                    flag(frame, Math.min(MAX_CERTAINTY, (reach - maxReach) / maxReach * MAX_CERTAINTY * 4.0));
+                }
+            } else {
+                state.decreaseViolationLevel(getId());
+            }
+        }
+    }
+
+    /**
+     * @return The shortest distance from the attacker's eye to the target's box around the rewound time,
+     *         or {@link Double#NaN} if the target's history does not cover that time.
+     */
+    private static double reach(EntityHistory attacker, EntityHistory target, long hitTime, int latencyMillis) {
+        long rewoundTime = hitTime - latencyMillis * 1_000_000L;
+        if (rewoundTime + COMPENSATION_WINDOW_NANOS < target.getOldestTime()) {
+            return Double.NaN;
+        }
+
+        int attackerIndex = attacker.indexAt(hitTime);
+        double attackerFraction = attacker.fractionAt(attackerIndex, hitTime);
+        double eyeX = attacker.getX(attackerIndex, attackerFraction);
+        double eyeY = attacker.getY(attackerIndex, attackerFraction) + attacker.getEyeHeight(attackerIndex);
+        double eyeZ = attacker.getZ(attackerIndex, attackerFraction);
+
+        double closest = distanceToBox(target, rewoundTime, eyeX, eyeY, eyeZ);
+        closest = Math.min(closest, distanceToBox(target, rewoundTime - COMPENSATION_WINDOW_NANOS, eyeX, eyeY, eyeZ));
+        return Math.min(closest, distanceToBox(target, rewoundTime + COMPENSATION_WINDOW_NANOS, eyeX, eyeY, eyeZ));
+    }
+
+    /**
+     * @return The distance from a point to the target's bounding box at the given time, 0 if inside it.
+     */
+    private static double distanceToBox(EntityHistory target, long time, double x, double y, double z) {
+        int index = target.indexAt(time);
+        double fraction = target.fractionAt(index, time);
+        double halfWidth = target.getWidth(index) / 2.0;
+        double minX = target.getX(index, fraction) - halfWidth;
+        double minY = target.getY(index, fraction);
+        double minZ = target.getZ(index, fraction) - halfWidth;
+
+        double dx = Math.max(0.0, Math.max(minX - x, x - (minX + halfWidth * 2.0)));
+        double dy = Math.max(0.0, Math.max(minY - y, y - (minY + target.getHeight(index))));
+        double dz = Math.max(0.0, Math.max(minZ - z, z - (minZ + halfWidth * 2.0)));
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return settings.get().enabled();
+    }
+}
@@ -1,80 +1,78 @@
 package net.blosson.lflagger.checks.list;
 
 import net.blosson.lflagger.checks.Check;
+import net.blosson.lflagger.config.ConfigCache;
 import net.blosson.lflagger.config.ModConfig;
+import net.blosson.lflagger.data.PlayerFrame;
 import net.blosson.lflagger.data.PlayerState;
-import net.blosson.lflagger.simulation.MovementSimulator;
 import net.blosson.lflagger.simulation.SimulatedPlayer;
-import net.blosson.lflagger.util.TpsTracker;
 import net.blosson.lflagger.util.object.ObjectPool;
-import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.util.math.Vec3d;
 
 /**
  * REFACTOR: This check has been completely overhauled to align with the new architecture.
  * - Magic numbers are replaced with constants loaded from the config.
  * - The inner PlayerSpeedState class has been removed in favor of the central PlayerState.
- * - SimulatedPlayer instances are recycled using an ObjectPool.
+ * - The simulation is shared with other checks through the player's SimulationCache.
  * - Redundant validation logic is removed.
  */
 public class SpeedCheck extends Check {
 
-    private static final MovementSimulator SIMULATOR = new MovementSimulator();
+    private record Settings(boolean enabled, double speedMultiplierLeniency, double speedFlatLeniency, int violationThreshold) {
+        static Settings of(ModConfig config) {
+            ModConfig.SpeedCheckConfig section = config.getSpeedCheck();
+            return new Settings(section.enabled, section.speedMultiplierLeniency, section.speedFlatLeniency, section.violationThreshold);
+        }
+    }
+
+    private final ConfigCache<Settings> settings = new ConfigCache<>(Settings::of);
+
     private static final float SIMULATION_FORWARD_INPUT = 1.0f;
     private static final float SIMULATION_STRAFE_INPUT = 0.0f;
     private static final double MAX_CERTAINTY = 100.0;
 
-    private final TpsTracker tpsTracker = TpsTracker.getInstance();
-
     public SpeedCheck() {
         super("Speed", "Detects movement exceeding normal speed limits.");
     }
 
     @Override
-    public void tick(PlayerEntity player, PlayerState state, ObjectPool<SimulatedPlayer> simulatorPool) {
-        if (!isEnabled() || isInvalid(player)) {
-            state.speedingTicks = 0; // Reset speeding ticks if check is invalid
+    public void tick(PlayerFrame frame, PlayerState state, ObjectPool<SimulatedPlayer> simulatorPool) {
+        if (!isEnabled() || isInvalid(frame)) {
+            state.setCounter(getId(), 0); // Reset speeding ticks if check is invalid
             return;
         }
 
         // REFACTOR: Use calculated velocity for remote players, direct velocity for local player.
-        Vec3d velocity = player.isMainPlayer() ? player.getVelocity() : state.getCalculatedVelocity();
+        Vec3d velocity = frame.mainPlayer ? frame.velocity : frame.calculatedVelocity;
         double actualHorizontalSpeed = new Vec3d(velocity.x, 0, velocity.z).length();
 
-        SimulatedPlayer simulatedPlayer = simulatorPool.acquire();
-        try {
-            simulatedPlayer.reset(player);
-
-            // Get TPS and Ping for compensation
-            double serverTps = tpsTracker.getTps();
-            int ping = tpsTracker.getPing();
+        // Simulate one tick with maximum forward input to get the max possible speed
+        Vec3d predictedVelocity = state.simulationCache.predictVelocity(frame, state,
+                SIMULATION_FORWARD_INPUT, SIMULATION_STRAFE_INPUT, simulatorPool);
+        double maxPredictedSpeed = new Vec3d(predictedVelocity.x, 0, predictedVelocity.z).length();
 
-            // Simulate one tick with maximum forward input to get the max possible speed
-            SIMULATOR.tick(player, simulatedPlayer, SIMULATION_FORWARD_INPUT, SIMULATION_STRAFE_INPUT, serverTps, ping);
-            double maxPredictedSpeed = new Vec3d(simulatedPlayer.velocity.x, 0, simulatedPlayer.velocity.z).length();
+        // REFACTOR: Use leniency values from config
+        Settings config = settings.get();
+        double lenientMaxSpeed = maxPredictedSpeed * config.speedMultiplierLeniency() + config.speedFlatLeniency();
 
-            // REFACTOR: Use leniency values from config
-            ModConfig.SpeedCheckConfig config = configManager.getConfig().getSpeedCheck();
-            double lenientMaxSpeed = maxPredictedSpeed * config.speedMultiplierLeniency + config.speedFlatLeniency;
-
-            if (actualHorizontalSpeed > lenientMaxSpeed) {
-                state.speedingTicks++;
-            } else {
-                state.speedingTicks = Math.max(0, state.speedingTicks - 1); // Decay violations
-            }
+        // The check's counter holds the number of consecutive ticks the player has been speeding.
+        int speedingTicks = state.getCounter(getId());
+        if (actualHorizontalSpeed > lenientMaxSpeed) {
+            speedingTicks++;
+        } else {
+            speedingTicks = Math.max(0, speedingTicks - 1); // Decay violations
+        }
+        state.setCounter(getId(), speedingTicks);
 
-            if (state.speedingTicks > config.violationThreshold) {
-                double vanillaMax = maxPredictedSpeed * config.speedMultiplierLeniency;
-                double certainty = ((actualHorizontalSpeed - vanillaMax) / vanillaMax) * MAX_CERTAINTY;
-                flag(player, Math.min(MAX_CERTAINTY, certainty));
-            }
-        } finally {
-            simulatorPool.release(simulatedPlayer);
+        if (speedingTicks > config.violationThreshold()) {
+            double vanillaMax = maxPredictedSpeed * config.speedMultiplierLeniency();
+            double certainty = ((actualHorizontalSpeed - vanillaMax) / vanillaMax) * MAX_CERTAINTY;
+            flag(frame, Math.min(MAX_CERTAINTY, certainty));
         }
     }
 
     @Override
     public boolean isEnabled() {
-        return configManager.getConfig().getSpeedCheck().enabled;
+        return settings.get().enabled();
     }
 }
\ No newline at end of file
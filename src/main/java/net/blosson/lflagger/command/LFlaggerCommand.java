@@ -0,0 +1,93 @@
+package net.blosson.lflagger.command;
+
+import com.mojang.brigadier.CommandDispatcher;
+import net.blosson.lflagger.config.ConfigManager;
+import net.blosson.lflagger.profiling.Profiler;
+import net.blosson.lflagger.simulation.SimulationCache;
+import net.blosson.lflagger.util.object.ObjectPool;
+import net.fabricmc.fabric.api.client.command.v2.FabricClientCommandSource;
+import net.minecraft.text.MutableText;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static net.fabricmc.fabric.api.client.command.v2.ClientCommandManager.literal;
+
+/**
+ * The client-side {@code /lflagger} command.
+ * <p>
+ * {@code /lflagger stats} prints the latency, object pool and simulation cache statistics, and its
+ * subcommands switch profiling and the overlay on or off, reset the histograms, or export them to a
+ * CSV file.
+ */
+public final class LFlaggerCommand {
+
+    private LFlaggerCommand() {}
+
+    public static void register(CommandDispatcher<FabricClientCommandSource> dispatcher) {
+        dispatcher.register(literal("lflagger")
+                .then(literal("stats")
+                        .executes(context -> showStats(context.getSource()))
+                        .then(literal("on").executes(context -> setProfiling(context.getSource(), true)))
+                        .then(literal("off").executes(context -> setProfiling(context.getSource(), false)))
+                        .then(literal("hud").executes(context -> toggleOverlay(context.getSource())))
+                        .then(literal("reset").executes(context -> {
+                            Profiler.reset();
+                            context.getSource().sendFeedback(prefix().append(Text.literal("Statistics reset.").formatted(Formatting.GRAY)));
+                            return 1;
+                        }))
+                        .then(literal("export").executes(context -> export(context.getSource())))));
+    }
+
+    private static int showStats(FabricClientCommandSource source) {
+        if (!Profiler.isEnabled()) {
+            source.sendFeedback(prefix().append(Text.literal("Profiling is off. Use /lflagger stats on.").formatted(Formatting.GRAY)));
+        }
+        List<String> lines = Profiler.formatSummary();
+        if (lines.isEmpty()) {
+            source.sendFeedback(prefix().append(Text.literal("Nothing recorded yet.").formatted(Formatting.GRAY)));
+        }
+        for (String line : lines) {
+            source.sendFeedback(Text.literal(line).formatted(Formatting.WHITE));
+        }
+        // Pool statistics are always collected, so they are shown even while profiling is off.
+        for (ObjectPool<?> pool : ObjectPool.getPools()) {
+            source.sendFeedback(Text.literal("pool." + pool.formatStats()).formatted(Formatting.WHITE));
+        }
+        source.sendFeedback(Text.literal(SimulationCache.formatStats()).formatted(Formatting.WHITE));
+        return 1;
+    }
+
+    private static int setProfiling(FabricClientCommandSource source, boolean enabled) {
+        ConfigManager.getInstance().update(config -> config.getPerformance().profiling = enabled);
+        Profiler.setEnabled(enabled);
+        source.sendFeedback(prefix().append(Text.literal("Profiling " + (enabled ? "enabled." : "disabled.")).formatted(Formatting.GRAY)));
+        return 1;
+    }
+
+    private static int toggleOverlay(FabricClientCommandSource source) {
+        ConfigManager configManager = ConfigManager.getInstance();
+        configManager.update(config -> config.getPerformance().statsOverlay = !config.getPerformance().statsOverlay);
+        boolean shown = configManager.getConfig().getPerformance().statsOverlay;
+        source.sendFeedback(prefix().append(Text.literal("Stats overlay " + (shown ? "shown." : "hidden.")).formatted(Formatting.GRAY)));
+        return 1;
+    }
+
+    private static int export(FabricClientCommandSource source) {
+        try {
+            Path path = Profiler.export();
+            source.sendFeedback(prefix().append(Text.literal("Exported to " + path).formatted(Formatting.GRAY)));
+            return 1;
+        } catch (IOException e) {
+            source.sendError(prefix().append(Text.literal("Export failed: " + e.getMessage())));
+            return 0;
+        }
+    }
+
+    private static MutableText prefix() {
+        return Text.literal("[LFlagger] ").formatted(Formatting.RED);
+    }
+}
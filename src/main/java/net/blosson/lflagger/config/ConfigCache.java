@@ -0,0 +1,43 @@
+package net.blosson.lflagger.config;
+
+import java.util.function.Function;
+
+/**
+ * Values derived from the configuration, recomputed only when a new snapshot is published.
+ * <p>
+ * Checks resolve the settings they need into a small immutable object once per snapshot, instead of
+ * following getter chains into the config on every tick. {@link #get()} compares the current snapshot
+ * with the one the cached value was resolved from, which is a single reference comparison unless the
+ * config changed. The value and its snapshot are published together, so a cache can be shared by the
+ * check workers.
+ *
+ * @param <T> The type of the resolved values. Should be immutable, e.g. a record.
+ */
+public final class ConfigCache<T> {
+
+    private final Function<ModConfig, T> resolver;
+    private volatile Resolved<T> resolved;
+
+    /**
+     * @param resolver Computes the values from a snapshot. May be called more than once per snapshot
+     *                 when several threads notice a change at the same time.
+     */
+    public ConfigCache(Function<ModConfig, T> resolver) {
+        this.resolver = resolver;
+    }
+
+    /**
+     * @return The values resolved from the current configuration snapshot.
+     */
+    public T get() {
+        ModConfig config = ConfigManager.getInstance().getConfig();
+        Resolved<T> current = resolved;
+        if (current == null || current.source != config) {
+            current = new Resolved<>(config, resolver.apply(config));
+            resolved = current;
+        }
+        return current.value;
+    }
+
+    private record Resolved<T>(ModConfig source, T value) {}
+}
@@ -2,12 +2,24 @@ package net.blosson.lflagger.config;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import net.blosson.lflagger.LFlagger;
 import net.fabricmc.loader.api.FabricLoader;
 
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * Manages the loading and saving of the mod's configuration from a JSON file.
@@ -16,14 +28,27 @@ import java.io.IOException;
  * point for all configuration data. It handles all file I/O and serialization/deserialization
  * between the {@link ModConfig} object and the {@code lflagger.json} file located in the
  * user's Minecraft config directory.
+ * <p>
+ * The configuration is published as a snapshot through a single volatile reference. A snapshot is never
+ * modified once published; changes go through {@link #update(Consumer)}, which publishes a modified copy.
+ * Any thread can therefore read the config without locking, and code that derives values from it can
+ * keep them until {@link #getConfig()} returns a different snapshot, see {@link ConfigCache}.
+ * <p>
+ * Once {@link #startWatching()} is called, a background thread watches the file and publishes a new
+ * snapshot whenever it is edited, so settings apply without restarting the game.
  */
 public class ConfigManager {
 
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
-    private static final File CONFIG_FILE = new File(FabricLoader.getInstance().getConfigDir().toFile(), "lflagger.json");
+    private static final File CONFIG_FILE = new File(getConfigDir().toFile(), "lflagger.json");
     private static final ConfigManager INSTANCE = new ConfigManager();
+    /** How long the watcher waits for an editor to finish writing before reading the file. */
+    private static final long SETTLE_MILLIS = 100;
 
-    private ModConfig config;
+    private volatile ModConfig config;
+    private final List<Consumer<ModConfig>> listeners = new CopyOnWriteArrayList<>();
+
+    private WatchService watchService;
 
     /**
      * Private constructor to enforce the singleton pattern.
@@ -33,6 +58,18 @@ public class ConfigManager {
         loadConfig();
     }
 
+    /**
+     * @return The game's config directory, or {@code ./config} when running outside of Fabric,
+     *         e.g. from the headless replay driver.
+     */
+    public static Path getConfigDir() {
+        try {
+            return FabricLoader.getInstance().getConfigDir();
+        } catch (LinkageError | RuntimeException e) {
+            return Path.of("config");
+        }
+    }
+
     /**
      * @return The singleton instance of the ConfigManager.
      */
@@ -41,12 +78,20 @@ public class ConfigManager {
     }
 
     /**
-     * @return The currently loaded configuration object.
+     * @return The current configuration snapshot. It must not be modified; use {@link #update(Consumer)}.
      */
     public ModConfig getConfig() {
         return config;
     }
 
+    /**
+     * Registers a listener that is called with every newly published snapshot, on the thread that
+     * published it. For a file change, that is the watcher thread.
+     */
+    public void addListener(Consumer<ModConfig> listener) {
+        listeners.add(listener);
+    }
+
     /**
      * Loads the configuration from the {@code lflagger.json} file.
      * <p>
@@ -56,25 +101,43 @@ public class ConfigManager {
      */
     public void loadConfig() {
         if (CONFIG_FILE.exists()) {
-            try (FileReader reader = new FileReader(CONFIG_FILE)) {
-                config = GSON.fromJson(reader, ModConfig.class);
-                // If the file is empty or structurally invalid, fromJson can return null
-                if (config == null) {
-                    config = new ModConfig();
-                }
-            } catch (IOException | com.google.gson.JsonSyntaxException e) {
+            try {
+                publish(read());
+            } catch (IOException | JsonParseException e) {
                 System.err.println("[LFlagger] Failed to load or parse config file! It might be corrupt. Using default settings.");
                 e.printStackTrace();
                 // Use default config on failure
-                config = new ModConfig();
+                publish(new ModConfig());
             }
         } else {
             // If the config file doesn't exist, create one with default values
-            config = new ModConfig();
+            publish(new ModConfig());
             saveConfig();
         }
     }
 
+    /**
+     * Publishes a copy of the current configuration with a change applied, and saves it to the file.
+     *
+     * @param change Modifies the copy. It is called before the copy is published, so it may write fields freely.
+     */
+    public synchronized void update(Consumer<ModConfig> change) {
+        override(change);
+        saveConfig();
+    }
+
+    /**
+     * Publishes a copy of the current configuration with a change applied, without saving it. Meant for
+     * tools and benchmarks that must not touch the player's config file.
+     *
+     * @param change Modifies the copy.
+     */
+    public synchronized void override(Consumer<ModConfig> change) {
+        ModConfig copy = copyOf(config);
+        change.accept(copy);
+        publish(copy);
+    }
+
     /**
      * Saves the current configuration object to the {@code lflagger.json} file.
      * The configuration is written in a human-readable "pretty-printed" JSON format.
@@ -87,4 +150,108 @@ public class ConfigManager {
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Starts watching the config file on a daemon thread, reloading it whenever it changes. A change
+     * that does not parse is reported and ignored, keeping the current settings.
+     */
+    public synchronized void startWatching() {
+        if (watchService != null) {
+            return;
+        }
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            CONFIG_FILE.getAbsoluteFile().getParentFile().toPath().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            LFlagger.LOGGER.error("Could not watch the config file, changes will need a restart", e);
+            watchService = null;
+            return;
+        }
+        Thread thread = new Thread(() -> watch(watchService), "LFlagger Config Watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the watcher thread started by {@link #startWatching()}.
+     */
+    public synchronized void stopWatching() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                LFlagger.LOGGER.warn("Failed to close the config watcher", e);
+            }
+            watchService = null;
+        }
+    }
+
+    private void watch(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.context() instanceof Path path && path.getFileName().toString().equals(CONFIG_FILE.getName())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    // Editors often write a file in several steps. Let them finish, then drop the events they caused.
+                    Thread.sleep(SETTLE_MILLIS);
+                    WatchKey pending = service.poll();
+                    if (pending != null) {
+                        pending.pollEvents();
+                        pending.reset();
+                    }
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped.
+        }
+    }
+
+    /**
+     * Parses the file again and publishes it if it differs from the current snapshot, which it does
+     * not after the mod saved the file itself.
+     */
+    private synchronized void reload() {
+        ModConfig loaded;
+        try {
+            loaded = read();
+        } catch (IOException | JsonParseException e) {
+            LFlagger.LOGGER.error("Ignoring the edited config file, as it could not be parsed: {}", e.getMessage());
+            return;
+        }
+        if (GSON.toJson(loaded).equals(GSON.toJson(config))) {
+            return;
+        }
+        publish(loaded);
+        LFlagger.LOGGER.info("Reloaded {}", CONFIG_FILE.getName());
+    }
+
+    private static ModConfig read() throws IOException {
+        try (FileReader reader = new FileReader(CONFIG_FILE)) {
+            ModConfig loaded = GSON.fromJson(reader, ModConfig.class);
+            // If the file is empty or structurally invalid, fromJson can return null
+            return loaded != null ? loaded : new ModConfig();
+        }
+    }
+
+    private void publish(ModConfig snapshot) {
+        for (String problem : snapshot.validate()) {
+            LFlagger.LOGGER.warn("Config: {}", problem);
+        }
+        config = snapshot;
+        for (Consumer<ModConfig> listener : listeners) {
+            listener.accept(snapshot);
+        }
+    }
+
+    private static ModConfig copyOf(ModConfig snapshot) {
+        return GSON.fromJson(GSON.toJsonTree(snapshot), ModConfig.class);
+    }
+}
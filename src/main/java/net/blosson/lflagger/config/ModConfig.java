@@ -2,6 +2,9 @@ package net.blosson.lflagger.config;
 
 import com.google.gson.annotations.SerializedName;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Holds all configurable settings for the mod.
  * <p>
@@ -10,6 +13,9 @@ import com.google.gson.annotations.SerializedName;
  * classes to logically group settings for each type of cheat check, which results
 
  * in a clean and organized JSON structure.
+ * <p>
+ * An instance obtained from {@link ConfigManager#getConfig()} is a published snapshot that other threads
+ * may be reading, so its fields must not be written. Use {@link ConfigManager#update} instead.
  */
 public class ModConfig {
 
@@ -28,11 +34,69 @@ public class ModConfig {
     @SerializedName("anti_knockback_check")
     private final AntiKnockbackCheckConfig antiKnockbackCheck = new AntiKnockbackCheckConfig();
 
+    @SerializedName("reach_check")
+    private final ReachCheckConfig reachCheck = new ReachCheckConfig();
+
+    @SerializedName("performance")
+    private final PerformanceConfig performance = new PerformanceConfig();
+
+    @SerializedName("alerts")
+    private final AlertConfig alerts = new AlertConfig();
+
     public FlyCheckConfig getFlyCheck() { return flyCheck; }
     public SpeedCheckConfig getSpeedCheck() { return speedCheck; }
     public NoFallCheckConfig getNoFallCheck() { return noFallCheck; }
     public StrafeCheckConfig getStrafeCheck() { return strafeCheck; }
     public AntiKnockbackCheckConfig getAntiKnockbackCheck() { return antiKnockbackCheck; }
+    public ReachCheckConfig getReachCheck() { return reachCheck; }
+    public PerformanceConfig getPerformance() { return performance; }
+    public AlertConfig getAlerts() { return alerts; }
+
+    /**
+     * Replaces values that would break the checks, such as negative thresholds, with the nearest valid
+     * value. Called by the {@link ConfigManager} before a snapshot is published.
+     *
+     * @return A description of every value that was replaced.
+     */
+    List<String> validate() {
+        List<String> problems = new ArrayList<>();
+        flyCheck.violationThreshold = atLeast(problems, "fly_check.violation_threshold", flyCheck.violationThreshold, 0);
+        flyCheck.verticalLeniency = atLeast(problems, "fly_check.vertical_leniency", flyCheck.verticalLeniency, 0.0);
+        speedCheck.violationThreshold = atLeast(problems, "speed_check.violation_threshold", speedCheck.violationThreshold, 0);
+        speedCheck.speedMultiplierLeniency = atLeast(problems, "speed_check.speed_multiplier_leniency", speedCheck.speedMultiplierLeniency, 1.0);
+        speedCheck.speedFlatLeniency = atLeast(problems, "speed_check.speed_flat_leniency", speedCheck.speedFlatLeniency, 0.0);
+        noFallCheck.violationThreshold = atLeast(problems, "no_fall_check.violation_threshold", noFallCheck.violationThreshold, 0);
+        noFallCheck.maxFallDistance = atLeast(problems, "no_fall_check.max_fall_distance", noFallCheck.maxFallDistance, 0.0);
+        strafeCheck.violationThreshold = atLeast(problems, "strafe_check.violation_threshold", strafeCheck.violationThreshold, 0);
+        strafeCheck.airStrafeLeniency = atLeast(problems, "strafe_check.air_strafe_leniency", strafeCheck.airStrafeLeniency, 0.0);
+        antiKnockbackCheck.assumedVanillaKnockback = atLeast(problems, "anti_knockback_check.assumed_vanilla_knockback",
+                antiKnockbackCheck.assumedVanillaKnockback, 0.01);
+        reachCheck.reachTolerance = atLeast(problems, "reach_check.reach_tolerance", reachCheck.reachTolerance, 0.0);
+        reachCheck.violationThreshold = atLeast(problems, "reach_check.violation_threshold", reachCheck.violationThreshold, 0);
+        performance.workerThreads = atLeast(problems, "performance.worker_threads", performance.workerThreads, 0);
+        performance.maxCheckInterval = atLeast(problems, "performance.max_check_interval", performance.maxCheckInterval, 1);
+        performance.tickBudgetMicros = atLeast(problems, "performance.tick_budget_micros", performance.tickBudgetMicros, 0);
+        alerts.coalesceWindowTicks = atLeast(problems, "alerts.coalesce_window_ticks", alerts.coalesceWindowTicks, 0);
+        alerts.maxLinesPerSecond = atLeast(problems, "alerts.max_lines_per_second", alerts.maxLinesPerSecond, 1);
+        alerts.flagLogMaxBytes = Math.max(0L, alerts.flagLogMaxBytes);
+        return problems;
+    }
+
+    private static int atLeast(List<String> problems, String key, int value, int minimum) {
+        if (value < minimum) {
+            problems.add(key + " was " + value + ", using " + minimum);
+            return minimum;
+        }
+        return value;
+    }
+
+    private static double atLeast(List<String> problems, String key, double value, double minimum) {
+        if (!(value >= minimum)) {
+            problems.add(key + " was " + value + ", using " + minimum);
+            return minimum;
+        }
+        return value;
+    }
 
     /** Contains settings related to the Fly check. */
     public static class FlyCheckConfig {
@@ -101,4 +165,114 @@ public class ModConfig {
         @SerializedName("assumed_vanilla_knockback")
         public double assumedVanillaKnockback = 0.4;
     }
-}
\ No newline at end of file
+
+    /** Contains settings related to the Reach check. */
+    public static class ReachCheckConfig {
+        /** If true, the Reach check will be active. */
+        @SerializedName("enabled")
+        public boolean enabled = true;
+        /**
+         * How far, in blocks, the attacker's eye may be from the target's box beyond their entity interaction
+         * range before the hit is a violation.
+         */
+        @SerializedName("reach_tolerance")
+        public double reachTolerance = 0.1;
+        /** The number of violations a player must accumulate before a flag is triggered. */
+        @SerializedName("violation_threshold")
+        public int violationThreshold = 3;
+    }
+
+    /** Contains settings that trade detection behavior against client performance. */
+    public static class PerformanceConfig {
+        /** If true, movement candidates are evaluated in one batched pass instead of one at a time. */
+        @SerializedName("batched_candidate_evaluation")
+        public boolean batchedCandidateEvaluation = true;
+
+        /**
+         * The number of worker threads that run the per-player checks in parallel.
+         * 0 runs every check on the client thread.
+         */
+        @SerializedName("worker_threads")
+        public int workerThreads = 2;
+
+        /**
+         * If true, every frame the checks see is appended to a binary recording in
+         * {@code config/lflagger/recordings}, which can be replayed offline with the {@code ReplayDriver}.
+         */
+        @SerializedName("record_sessions")
+        public boolean recordSessions = false;
+
+        /**
+         * If true, distant players without violations are only checked every few ticks instead of every tick.
+         * The local player, nearby players and suspicious players are always checked every tick.
+         */
+        @SerializedName("interest_scheduling")
+        public boolean interestScheduling = true;
+
+        /** Players within this many blocks of the local player are checked every tick. */
+        @SerializedName("full_rate_distance")
+        public double fullRateDistance = 24.0;
+
+        /** The distance, in blocks, at which players are checked only every {@code max_check_interval} ticks. */
+        @SerializedName("sampling_distance")
+        public double samplingDistance = 96.0;
+
+        /** The longest gap, in ticks, between two checks of a player. Capped at 19. */
+        @SerializedName("max_check_interval")
+        public int maxCheckInterval = 8;
+
+        /**
+         * If true, remote players are checked on the positions the server sent, once per movement packet,
+         * instead of on the client's smoothed positions every tick.
+         */
+        @SerializedName("packet_driven_checks")
+        public boolean packetDrivenChecks = true;
+
+        /**
+         * The time, in microseconds, a client tick may spend on the checks. Players left over when it is
+         * used up are checked first on the next tick. 0 disables the budget.
+         */
+        @SerializedName("tick_budget_micros")
+        public int tickBudgetMicros = 4000;
+
+        /**
+         * If true, the duration of every check, prediction engine search and collision is recorded into
+         * latency histograms, shown by {@code /lflagger stats}. Off by default, as it reads the clock often.
+         */
+        @SerializedName("profiling")
+        public boolean profiling = false;
+
+        /** If true, the latency statistics are drawn in the top left corner of the screen. */
+        @SerializedName("stats_overlay")
+        public boolean statsOverlay = false;
+
+        /**
+         * If true, object pools log objects that are released twice or not released by the end of a tick,
+         * together with where they were acquired. Slows every acquire and release down.
+         */
+        @SerializedName("pool_debug")
+        public boolean poolDebug = false;
+    }
+
+    /** Contains settings for how flags are shown in the chat. */
+    public static class AlertConfig {
+        /**
+         * After a player is flagged by a check, further flags of the same player and check are collected
+         * for this many ticks and then shown as one summary line.
+         */
+        @SerializedName("coalesce_window_ticks")
+        public int coalesceWindowTicks = 60;
+
+        /** The maximum number of flag lines shown in the chat per second. */
+        @SerializedName("max_lines_per_second")
+        public int maxLinesPerSecond = 4;
+
+        /** If true, every flag is appended to a log in {@code config/lflagger/flags}. */
+        @SerializedName("flag_log")
+        public boolean flagLog = true;
+
+        /** The approximate size, in bytes, after which the flag log continues in a new file. 0 disables rotation. */
+        @SerializedName("flag_log_max_bytes")
+        public long flagLogMaxBytes = 8L * 1024 * 1024;
+    }
+}
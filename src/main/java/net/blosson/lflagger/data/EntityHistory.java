@@ -0,0 +1,167 @@
+package net.blosson.lflagger.data;
+
+/**
+ * A fixed-capacity, time-ordered ring of a player's server positions and bounding box sizes, keyed by
+ * the {@link System#nanoTime()} at which each position arrived.
+ * <p>
+ * Unlike {@link PositionHistory}, which holds one sample per client tick, this history holds one sample
+ * per movement packet and answers "where was the player at time T". A lookup binary-searches the
+ * timestamps for the two samples around T and interpolates between them, so checks can rewind a player
+ * by another player's latency. Samples live in parallel primitive arrays and lookups return primitives,
+ * so neither recording nor querying allocates.
+ * <p>
+ * Samples are recorded on the client thread between ticks and only read while the client thread waits
+ * for the checks, so no synchronization is needed.
+ */
+public class EntityHistory {
+
+    /** The number of samples kept. Must be a power of two. At one update every other tick, about six seconds. */
+    public static final int CAPACITY = 64;
+    private static final int MASK = CAPACITY - 1;
+
+    private final long[] nanos = new long[CAPACITY];
+    private final double[] xs = new double[CAPACITY];
+    private final double[] ys = new double[CAPACITY];
+    private final double[] zs = new double[CAPACITY];
+    private final float[] widths = new float[CAPACITY];
+    private final float[] heights = new float[CAPACITY];
+    private final float[] eyeHeights = new float[CAPACITY];
+
+    /** The number of samples ever written. The oldest stored sample is {@code written - size}. */
+    private long written;
+    private int size;
+
+    /**
+     * Appends a sample, dropping the oldest one once the ring is full. A sample older than the newest one
+     * replaces the whole history, as it can only come from a clock that was reset.
+     *
+     * @param time The arrival time, from {@link System#nanoTime()}.
+     */
+    public void add(long time, double x, double y, double z, float width, float height, float eyeHeight) {
+        if (size > 0 && time < nanos[(int) ((written - 1) & MASK)]) {
+            clear();
+        }
+        int slot = (int) (written & MASK);
+        nanos[slot] = time;
+        xs[slot] = x;
+        ys[slot] = y;
+        zs[slot] = z;
+        widths[slot] = width;
+        heights[slot] = height;
+        eyeHeights[slot] = eyeHeight;
+        written++;
+        if (size < CAPACITY) {
+            size++;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        written = 0;
+        size = 0;
+    }
+
+    /**
+     * Finds the newest sample that arrived at or before the given time.
+     *
+     * @return The sample's index, {@code 0} for the oldest stored sample, or {@code -1} if every stored
+     *         sample is newer than {@code time}.
+     */
+    public int indexAt(long time) {
+        int low = 0;
+        int high = size - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (nanos[slot(mid)] <= time) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @param index An index from {@link #indexAt(long)}.
+     * @param time The time that was looked up.
+     * @return How far {@code time} lies between the sample and the next one, from 0 to 1. 0 past the newest sample.
+     */
+    public double fractionAt(int index, long time) {
+        if (index < 0 || index >= size - 1) {
+            return 0.0;
+        }
+        long start = nanos[slot(index)];
+        long end = nanos[slot(index + 1)];
+        return end > start ? Math.min(1.0, (double) (time - start) / (end - start)) : 0.0;
+    }
+
+    /**
+     * @param index An index from {@link #indexAt(long)}, clamped to the oldest sample if negative.
+     * @param fraction A fraction from {@link #fractionAt(int, long)}.
+     */
+    public double getX(int index, double fraction) {
+        return interpolate(xs, index, fraction);
+    }
+
+    public double getY(int index, double fraction) {
+        return interpolate(ys, index, fraction);
+    }
+
+    public double getZ(int index, double fraction) {
+        return interpolate(zs, index, fraction);
+    }
+
+    /**
+     * The box size and eye height are taken from the sample itself, as poses change instantly.
+     */
+    public float getWidth(int index) {
+        return widths[slot(Math.max(0, index))];
+    }
+
+    public float getHeight(int index) {
+        return heights[slot(Math.max(0, index))];
+    }
+
+    public float getEyeHeight(int index) {
+        return eyeHeights[slot(Math.max(0, index))];
+    }
+
+    /**
+     * @return The arrival time of the oldest stored sample. Only valid if the history is not empty.
+     */
+    public long getOldestTime() {
+        return nanos[slot(0)];
+    }
+
+    /**
+     * @return The arrival time of the newest stored sample. Only valid if the history is not empty.
+     */
+    public long getNewestTime() {
+        return nanos[slot(size - 1)];
+    }
+
+    private double interpolate(double[] values, int index, double fraction) {
+        int from = Math.max(0, index);
+        double value = values[slot(from)];
+        if (fraction <= 0.0 || from >= size - 1) {
+            return value;
+        }
+        return value + (values[slot(from + 1)] - value) * fraction;
+    }
+
+    /**
+     * Maps an index counted from the oldest stored sample to its array slot.
+     */
+    private int slot(int index) {
+        return (int) ((written - size + index) & MASK);
+    }
+}
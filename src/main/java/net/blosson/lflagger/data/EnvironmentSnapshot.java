@@ -0,0 +1,103 @@
+package net.blosson.lflagger.data;
+
+import net.blosson.lflagger.physics.kernel.MovementConditions;
+import net.minecraft.entity.attribute.EntityAttributes;
+import net.minecraft.entity.effect.StatusEffectInstance;
+import net.minecraft.entity.effect.StatusEffect;
+import net.minecraft.entity.effect.StatusEffects;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+
+/**
+ * A per-player snapshot of everything in the player's surroundings that the movement simulations
+ * read but that does not depend on the simulated input.
+ * <p>
+ * The prediction engines evaluate many input candidates per tick, and several checks run their own
+ * simulations on top of that. Without this snapshot each of them repeated the same block-state and
+ * status-effect lookups. The snapshot is refreshed once per tick by the {@code CheckManager}; the
+ * block lookups are only redone when the player crosses a block boundary or the surrounding
+ * {@link WorldSnapshot} was recaptured, and the effect amplifiers only when the server reports a
+ * change to the player's effects. Block data is read from the {@link WorldSnapshot} rather than the world.
+ * <p>
+ * The values themselves live in {@link MovementConditions}, which is what the physics kernel reads. This
+ * class is only the adapter that fills them in from the game.
+ */
+public class EnvironmentSnapshot extends MovementConditions {
+
+    private final BlockPos.Mutable groundPos = new BlockPos.Mutable();
+    private final BlockPos.Mutable supportPos = new BlockPos.Mutable();
+    private final BlockPos.Mutable feetPos = new BlockPos.Mutable();
+    private WorldSnapshot lastWorldSnapshot;
+    private boolean blocksDirty = true;
+    private boolean effectsDirty = true;
+
+    /**
+     * Refreshes the snapshot for the current tick. This should be called once per player per tick,
+     * before any check reads the snapshot.
+     *
+     * @param player The player this snapshot belongs to.
+     * @param worldSnapshot The blocks around the player, captured for the current tick.
+     */
+    public void update(PlayerEntity player, WorldSnapshot worldSnapshot) {
+        this.inWater = player.isSubmergedInWater();
+        this.inLava = player.isInLava();
+        this.movementSpeed = player.getMovementSpeed();
+        this.movementSpeedAttribute = player.getAttributeValue(EntityAttributes.MOVEMENT_SPEED);
+
+        if (blocksDirty || worldSnapshot != lastWorldSnapshot || hasCrossedBlockBoundary(player)) {
+            refreshBlocks(player, worldSnapshot);
+        }
+        if (effectsDirty) {
+            refreshEffects(player);
+        }
+    }
+
+    /**
+     * Marks the effect amplifiers as stale so they are re-read on the next {@link #update(PlayerEntity, WorldSnapshot)}.
+     * This should be called whenever the server adds or removes a status effect on the player.
+     */
+    public void invalidateEffects() {
+        this.effectsDirty = true;
+    }
+
+    private boolean hasCrossedBlockBoundary(PlayerEntity player) {
+        BlockPos blockPos = player.getBlockPos();
+        return groundPos.getX() != MathHelper.floor(player.getX())
+                || groundPos.getY() != MathHelper.floor(player.getY() - 0.1)
+                || groundPos.getZ() != MathHelper.floor(player.getZ())
+                || supportPos.getX() != blockPos.getX()
+                || supportPos.getY() != blockPos.getY() - 1
+                || supportPos.getZ() != blockPos.getZ()
+                || feetPos.getX() != (int) player.getX()
+                || feetPos.getY() != (int) player.getY()
+                || feetPos.getZ() != (int) player.getZ();
+    }
+
+    private void refreshBlocks(PlayerEntity player, WorldSnapshot worldSnapshot) {
+        BlockPos blockPos = player.getBlockPos();
+        groundPos.set(player.getX(), player.getY() - 0.1, player.getZ());
+        supportPos.set(blockPos.getX(), blockPos.getY() - 1, blockPos.getZ());
+        feetPos.set((int) player.getX(), (int) player.getY(), (int) player.getZ());
+
+        this.groundType = worldSnapshot.getGroundType(groundPos.getX(), groundPos.getY(), groundPos.getZ());
+        this.groundSlipperiness = worldSnapshot.getSlipperiness(supportPos.getX(), supportPos.getY(), supportPos.getZ());
+        this.inCobweb = worldSnapshot.isCobweb(feetPos.getX(), feetPos.getY(), feetPos.getZ());
+        this.lastWorldSnapshot = worldSnapshot;
+        this.blocksDirty = false;
+    }
+
+    private void refreshEffects(PlayerEntity player) {
+        this.speedAmplifier = amplifierOf(player, StatusEffects.SPEED);
+        this.slownessAmplifier = amplifierOf(player, StatusEffects.SLOWNESS);
+        this.jumpBoostAmplifier = amplifierOf(player, StatusEffects.JUMP_BOOST);
+        this.levitationAmplifier = amplifierOf(player, StatusEffects.LEVITATION);
+        this.effectsDirty = false;
+    }
+
+    private static int amplifierOf(PlayerEntity player, RegistryEntry<StatusEffect> effect) {
+        StatusEffectInstance instance = player.getStatusEffect(effect);
+        return instance != null ? instance.getAmplifier() : NO_EFFECT;
+    }
+}
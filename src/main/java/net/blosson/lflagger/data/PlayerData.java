@@ -1,26 +1,57 @@
 package net.blosson.lflagger.data;
 
+import net.blosson.lflagger.util.TimingService;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.client.network.ClientPlayerEntity;
 import net.minecraft.util.math.Box;
 import net.minecraft.util.math.Vec3d;
 
-import java.util.Deque;
-import java.util.LinkedList;
-
+/**
+ * The latest movement sample of a player, together with their recent position history.
+ * <p>
+ * One instance is owned by each {@link PlayerState} and updated in place every tick, so tracking a
+ * player does not allocate anything beyond what the {@link PlayerFrame} already holds.
+ */
 public class PlayerData {
 
-    public final long clientTimestamp;
-    public final Vec3d position;
-    public final Vec3d lastPosition;
-    public final Box boundingBox;
-    public final boolean onGround;
-    public final float fallDistance;
-    public final int serverPing;
-    public final float serverTps;
-    public final Deque<PositionSnapshot> positionHistory;
-
-    public PlayerData(PlayerEntity player, PlayerData lastData, float currentTps) {
+    public long clientTimestamp;
+    public Vec3d position;
+    public Vec3d lastPosition;
+    public Box boundingBox;
+    public boolean onGround;
+    public float fallDistance;
+    public int serverPing;
+    public float serverTps;
+    public final PositionHistory positionHistory = new PositionHistory();
+
+    /**
+     * Records a new tick from a captured frame.
+     *
+     * @param frame The frame of the tick.
+     * @param currentTps The estimated server TPS.
+     */
+    public void update(PlayerFrame frame, float currentTps) {
+        this.lastPosition = positionHistory.isEmpty() ? frame.position : this.position;
+        this.clientTimestamp = frame.timestamp;
+        this.position = frame.position;
+        this.boundingBox = frame.boundingBox;
+        this.onGround = frame.onGround;
+        this.fallDistance = (float) frame.fallDistance;
+        this.serverTps = currentTps;
+        // The ping is only known for the local player, as in the entity variant below.
+        this.serverPing = frame.mainPlayer ? frame.ping : 0;
+
+        positionHistory.add(clientTimestamp, position.x, position.y, position.z);
+    }
+
+    /**
+     * Records a new tick directly from a player entity. Must be called on the client thread.
+     *
+     * @param player The player.
+     * @param currentTps The estimated server TPS.
+     */
+    public void update(PlayerEntity player, float currentTps) {
+        this.lastPosition = positionHistory.isEmpty() ? player.getEntityPos() : this.position;
         this.clientTimestamp = System.currentTimeMillis();
         this.position = player.getEntityPos();
         this.boundingBox = player.getBoundingBox();
@@ -28,28 +59,9 @@ public class PlayerData {
         this.fallDistance = (float) player.fallDistance;
         this.serverTps = currentTps;
 
-        if (player instanceof ClientPlayerEntity) {
-            ClientPlayerEntity localPlayer = (ClientPlayerEntity) player;
-            if (localPlayer.networkHandler != null && localPlayer.networkHandler.getPlayerListEntry(localPlayer.getUuid()) != null) {
-                this.serverPing = localPlayer.networkHandler.getPlayerListEntry(localPlayer.getUuid()).getLatency();
-            } else {
-                this.serverPing = 0;
-            }
-        } else {
-            this.serverPing = 0;
-        }
-
-        if (lastData != null) {
-            this.lastPosition = lastData.position;
-            this.positionHistory = new LinkedList<>(lastData.positionHistory);
-        } else {
-            this.lastPosition = player.getEntityPos();
-            this.positionHistory = new LinkedList<>();
-        }
-
-        this.positionHistory.add(new PositionSnapshot(this.clientTimestamp, this.position));
-        if (this.positionHistory.size() > 20) {
-            this.positionHistory.poll();
-        }
+        // As before, the ping is only tracked for the local player.
+        this.serverPing = player instanceof ClientPlayerEntity ? TimingService.getInstance().getLatency(player.getUuid()) : 0;
+
+        positionHistory.add(clientTimestamp, position.x, position.y, position.z);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,186 @@
+package net.blosson.lflagger.data;
+
+import net.blosson.lflagger.config.ConfigCache;
+import net.blosson.lflagger.util.DamageTiltTracker;
+import net.blosson.lflagger.util.TimingService;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.UUID;
+
+/**
+ * An immutable capture of everything the checks read from a player entity during one tick.
+ * <p>
+ * Frames are built on the client thread by the {@code CheckManager} before the checks are fanned out
+ * to worker threads. Checks read the frame instead of the live entity, which the game keeps mutating on
+ * the client thread. Block data comes from the player's {@link WorldSnapshot}, so checks never need to
+ * query the world either.
+ * <p>
+ * For remote players, the position is the last one the server sent, rather than the position the client
+ * is smoothly moving the entity towards it, as soon as the first movement packet for them arrived.
+ * <p>
+ * Frames can also be read back from a session recording, in which case no entity or world exists at all.
+ */
+public class PlayerFrame {
+
+    /** Whether remote players are checked against the server's positions, read for every captured frame. */
+    private static final ConfigCache<Boolean> packetDrivenChecks =
+            new ConfigCache<>(config -> config.getPerformance().packetDrivenChecks);
+
+    public final UUID uuid;
+    public final int entityId;
+    public final String name;
+    /** Whether this frame belongs to the local player. */
+    public final boolean mainPlayer;
+    public final boolean allowFlying;
+    public final boolean flying;
+
+    public final long worldTime;
+    /** The wall-clock time of the capture, in milliseconds. */
+    public final long timestamp;
+    public final Vec3d position;
+    public final Vec3d lastPosition;
+    /** The entity's own velocity. Only reliable for the local player. */
+    public final Vec3d velocity;
+    /**
+     * The velocity derived from position deltas, used for remote players, in blocks per tick. Taken from the
+     * server positions when available, otherwise from the rendered positions of consecutive frames.
+     */
+    public final Vec3d calculatedVelocity;
+    public final Box boundingBox;
+    public final float yaw;
+    public final float stepHeight;
+    /** The collision-relevant blocks around the player. */
+    public final WorldSnapshot worldSnapshot;
+
+    public final boolean onGround;
+    public final boolean sprinting;
+    public final boolean sneaking;
+    public final boolean climbing;
+    public final boolean swimming;
+    public final boolean blocking;
+    public final int hurtTime;
+    public final double fallDistance;
+    /** Whether a damage tilt was received for the player within the tracker's window. */
+    public final boolean recentDamageTilt;
+
+    /** The local player's latency in milliseconds, used for lag compensation. */
+    public final int ping;
+    /** The estimated server TPS at the time of the capture. */
+    public final double serverTps;
+    /** Whether the player was roughly inside the local player's view. Used by the check scheduler. */
+    public final boolean onScreen;
+    /**
+     * Whether the frame carries movement the checks have not seen yet. Always {@code true} for the local
+     * player and for players the server has not sent a position for. Used by the check scheduler.
+     */
+    public final boolean movementUpdate;
+
+    /**
+     * Captures the current state of a player. Must be called on the client thread.
+     *
+     * @param player The player to capture.
+     * @param state The player's tracked state, used for the calculated velocity and world snapshot.
+     * @param onScreen Whether the player is inside the local player's view.
+     */
+    public PlayerFrame(PlayerEntity player, PlayerState state, boolean onScreen) {
+        this.uuid = player.getUuid();
+        this.entityId = player.getId();
+        this.name = player.getName().getString();
+        this.mainPlayer = player.isMainPlayer();
+        this.allowFlying = player.getAbilities().allowFlying;
+        this.flying = player.getAbilities().flying;
+
+        this.worldTime = player.getEntityWorld().getTime();
+        this.timestamp = System.currentTimeMillis();
+        this.velocity = player.getVelocity();
+        if (!mainPlayer && state.serverPosition != null
+                && packetDrivenChecks.get()) {
+            // The entity itself is still on its way to the server's position, so move its box there as well.
+            this.position = state.serverPosition;
+            this.lastPosition = state.lastServerPosition;
+            this.calculatedVelocity = state.getServerVelocity();
+            this.boundingBox = player.getBoundingBox().offset(position.subtract(player.getEntityPos()));
+            this.movementUpdate = state.serverUpdatePending;
+        } else {
+            this.position = player.getEntityPos();
+            this.lastPosition = new Vec3d(player.lastX, player.lastY, player.lastZ);
+            this.calculatedVelocity = state.getCalculatedVelocity(position, timestamp);
+            this.boundingBox = player.getBoundingBox();
+            this.movementUpdate = true;
+        }
+        this.yaw = player.getYaw();
+        this.stepHeight = player.getStepHeight();
+        this.worldSnapshot = state.worldSnapshot;
+
+        this.onGround = player.isOnGround();
+        this.sprinting = player.isSprinting();
+        this.sneaking = player.isSneaking();
+        this.climbing = player.isClimbing();
+        this.swimming = player.isSwimming();
+        this.blocking = player.isBlocking();
+        this.hurtTime = player.hurtTime;
+        this.fallDistance = player.fallDistance;
+        this.recentDamageTilt = DamageTiltTracker.getInstance().hasRecentTilt(entityId, worldTime);
+
+        TimingService timing = TimingService.getInstance();
+        MinecraftClient client = MinecraftClient.getInstance();
+        this.ping = client.player != null ? timing.getLatency(client.player.getUuid()) : 0;
+        this.serverTps = timing.getTps();
+        this.onScreen = onScreen;
+    }
+
+    /**
+     * Creates a frame from previously recorded values.
+     */
+    public PlayerFrame(UUID uuid, int entityId, String name, boolean mainPlayer, boolean allowFlying, boolean flying,
+                       long worldTime, long timestamp, Vec3d position, Vec3d lastPosition, Vec3d velocity,
+                       Vec3d calculatedVelocity, Box boundingBox, float yaw, float stepHeight, WorldSnapshot worldSnapshot,
+                       boolean onGround, boolean sprinting, boolean sneaking, boolean climbing, boolean swimming,
+                       boolean blocking, int hurtTime, double fallDistance, boolean recentDamageTilt, int ping, double serverTps,
+                       boolean onScreen, boolean movementUpdate) {
+        this.uuid = uuid;
+        this.entityId = entityId;
+        this.name = name;
+        this.mainPlayer = mainPlayer;
+        this.allowFlying = allowFlying;
+        this.flying = flying;
+        this.worldTime = worldTime;
+        this.timestamp = timestamp;
+        this.position = position;
+        this.lastPosition = lastPosition;
+        this.velocity = velocity;
+        this.calculatedVelocity = calculatedVelocity;
+        this.boundingBox = boundingBox;
+        this.yaw = yaw;
+        this.stepHeight = stepHeight;
+        this.worldSnapshot = worldSnapshot;
+        this.onGround = onGround;
+        this.sprinting = sprinting;
+        this.sneaking = sneaking;
+        this.climbing = climbing;
+        this.swimming = swimming;
+        this.blocking = blocking;
+        this.hurtTime = hurtTime;
+        this.fallDistance = fallDistance;
+        this.recentDamageTilt = recentDamageTilt;
+        this.ping = ping;
+        this.serverTps = serverTps;
+        this.onScreen = onScreen;
+        this.movementUpdate = movementUpdate;
+    }
+
+    public double getX() {
+        return position.x;
+    }
+
+    public double getY() {
+        return position.y;
+    }
+
+    public double getZ() {
+        return position.z;
+    }
+}
@@ -0,0 +1,226 @@
+package net.blosson.lflagger.data;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid over the horizontal positions of all tracked players, for proximity queries that
+ * would otherwise loop over every player.
+ * <p>
+ * Each player occupies one entry, found through {@link PlayerState#gridSlot}. Entries of the same
+ * {@link #CELL_SIZE} column are chained through primitive index arrays, with the chain heads kept in a
+ * primitive map keyed by the packed cell coordinates. Moving a player within its cell only overwrites
+ * its coordinates; moving it to another cell unlinks and relinks it in constant time. Queries write the
+ * matching states into a caller-supplied array, so neither maintenance nor queries allocate once the
+ * grid has grown to the number of players.
+ * <p>
+ * The grid is maintained by the {@code CheckManager} on the client thread at the start of every tick.
+ * Queries may be made from the client thread or by the checks, during which the grid does not change.
+ */
+public class PlayerGrid {
+
+    /** The edge length of a grid column, in blocks. */
+    public static final int CELL_SIZE = 16;
+    private static final int NO_ENTRY = -1;
+
+    private final Long2IntOpenHashMap cellHeads = new Long2IntOpenHashMap();
+
+    private PlayerState[] states = new PlayerState[16];
+    private double[] xs = new double[16];
+    private double[] ys = new double[16];
+    private double[] zs = new double[16];
+    private long[] cells = new long[16];
+    private int[] next = new int[16];
+    private int[] previous = new int[16];
+    private int[] generations = new int[16];
+
+    /** Entries below this index have been used at least once. */
+    private int highWater;
+    /** Head of the chain of free entries, linked through {@link #next}. */
+    private int freeHead = NO_ENTRY;
+    private int size;
+    private int generation;
+
+    private long cellChanges;
+
+    public PlayerGrid() {
+        cellHeads.defaultReturnValue(NO_ENTRY);
+    }
+
+    /**
+     * Starts a maintenance pass. Players not passed to {@link #update} before {@link #endUpdate()} are removed.
+     */
+    public void beginUpdate() {
+        generation++;
+    }
+
+    /**
+     * Inserts a player or moves them to a new position.
+     */
+    public void update(PlayerState state, double x, double y, double z) {
+        int entry = state.gridSlot;
+        long cell = cellOf(x, z);
+        if (entry == NO_ENTRY) {
+            entry = allocate();
+            states[entry] = state;
+            state.gridSlot = entry;
+            link(entry, cell);
+            size++;
+        } else if (cells[entry] != cell) {
+            unlink(entry);
+            link(entry, cell);
+            cellChanges++;
+        }
+        xs[entry] = x;
+        ys[entry] = y;
+        zs[entry] = z;
+        generations[entry] = generation;
+    }
+
+    /**
+     * Finishes a maintenance pass, removing every player that was not updated since {@link #beginUpdate()},
+     * e.g. because they went out of tracking range.
+     */
+    public void endUpdate() {
+        for (int entry = 0; entry < highWater; entry++) {
+            if (states[entry] != null && generations[entry] != generation) {
+                remove(states[entry]);
+            }
+        }
+    }
+
+    /**
+     * Removes a player, e.g. when they left the game. Does nothing if they are not in the grid.
+     */
+    public void remove(PlayerState state) {
+        int entry = state.gridSlot;
+        if (entry == NO_ENTRY || states[entry] != state) {
+            return;
+        }
+        unlink(entry);
+        states[entry] = null;
+        state.gridSlot = NO_ENTRY;
+        next[entry] = freeHead;
+        freeHead = entry;
+        size--;
+    }
+
+    /**
+     * Finds the players whose position lies inside a box.
+     *
+     * @param out Receives the matching players. Players beyond its length are left out.
+     * @return The number of players written to {@code out}.
+     */
+    public int queryBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, PlayerState[] out) {
+        int found = 0;
+        int minCellX = Math.floorDiv((int) Math.floor(minX), CELL_SIZE);
+        int maxCellX = Math.floorDiv((int) Math.floor(maxX), CELL_SIZE);
+        int minCellZ = Math.floorDiv((int) Math.floor(minZ), CELL_SIZE);
+        int maxCellZ = Math.floorDiv((int) Math.floor(maxZ), CELL_SIZE);
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+                for (int entry = cellHeads.get(pack(cellX, cellZ)); entry != NO_ENTRY; entry = next[entry]) {
+                    if (xs[entry] >= minX && xs[entry] <= maxX && ys[entry] >= minY && ys[entry] <= maxY
+                            && zs[entry] >= minZ && zs[entry] <= maxZ) {
+                        if (found == out.length) {
+                            return found;
+                        }
+                        out[found++] = states[entry];
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Finds the players whose position lies within a distance of a point.
+     *
+     * @param out Receives the matching players. Players beyond its length are left out.
+     * @return The number of players written to {@code out}.
+     */
+    public int queryRadius(double x, double y, double z, double radius, PlayerState[] out) {
+        int found = queryBox(x - radius, y - radius, z - radius, x + radius, y + radius, z + radius, out);
+        double radiusSquared = radius * radius;
+        int kept = 0;
+        for (int i = 0; i < found; i++) {
+            int entry = out[i].gridSlot;
+            double dx = xs[entry] - x;
+            double dy = ys[entry] - y;
+            double dz = zs[entry] - z;
+            if (dx * dx + dy * dy + dz * dz <= radiusSquared) {
+                out[kept++] = out[i];
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * @return The number of players in the grid.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of times a player moved to another cell so far.
+     */
+    public long getCellChanges() {
+        return cellChanges;
+    }
+
+    private int allocate() {
+        if (freeHead != NO_ENTRY) {
+            int entry = freeHead;
+            freeHead = next[entry];
+            return entry;
+        }
+        if (highWater == states.length) {
+            int capacity = states.length * 2;
+            states = Arrays.copyOf(states, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            zs = Arrays.copyOf(zs, capacity);
+            cells = Arrays.copyOf(cells, capacity);
+            next = Arrays.copyOf(next, capacity);
+            previous = Arrays.copyOf(previous, capacity);
+            generations = Arrays.copyOf(generations, capacity);
+        }
+        return highWater++;
+    }
+
+    private void link(int entry, long cell) {
+        int head = cellHeads.get(cell);
+        cells[entry] = cell;
+        previous[entry] = NO_ENTRY;
+        next[entry] = head;
+        if (head != NO_ENTRY) {
+            previous[head] = entry;
+        }
+        cellHeads.put(cell, entry);
+    }
+
+    private void unlink(int entry) {
+        int before = previous[entry];
+        int after = next[entry];
+        if (after != NO_ENTRY) {
+            previous[after] = before;
+        }
+        if (before != NO_ENTRY) {
+            next[before] = after;
+        } else if (after != NO_ENTRY) {
+            cellHeads.put(cells[entry], after);
+        } else {
+            cellHeads.remove(cells[entry]);
+        }
+    }
+
+    private static long cellOf(double x, double z) {
+        return pack(Math.floorDiv((int) Math.floor(x), CELL_SIZE), Math.floorDiv((int) Math.floor(z), CELL_SIZE));
+    }
+
+    private static long pack(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+}
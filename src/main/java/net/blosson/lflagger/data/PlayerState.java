@@ -1,11 +1,11 @@
 package net.blosson.lflagger.data;
 
-import net.blosson.lflagger.util.TpsTracker;
+import net.blosson.lflagger.checks.CheckRegistry;
+import net.blosson.lflagger.simulation.SimulationCache;
 import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.util.math.Vec3d;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * Centralizes all stateful data for a single player that needs to be tracked across game ticks.
@@ -18,10 +18,10 @@ import java.util.Map;
  */
 public class PlayerState {
 
-    private final PlayerEntity player;
-
-    /** A map to store violation levels for various checks, keyed by the check's name. */
-    private final Map<String, Integer> violationLevels = new HashMap<>();
+    /** Violation levels, indexed by check ID. Grown when a check is registered after this state was created. */
+    private int[] violationLevels = new int[CheckRegistry.size()];
+    /** A general-purpose counter per check, indexed by check ID, e.g. consecutive speeding ticks for SpeedCheck. */
+    private int[] counters = new int[CheckRegistry.size()];
 
     // REFACTOR: Javadoc added to explain the purpose of these state fields.
     /** The player's on-ground status from the previous tick. Used by NoFallCheck. */
@@ -29,86 +29,202 @@ public class PlayerState {
     /** The player's fall distance from the previous tick. Used by NoFallCheck. */
     public double lastFallDistance;
 
-    /** The number of consecutive ticks the player has been considered speeding. Used by SpeedCheck. */
-    public int speedingTicks;
-
     /** The player's hurt time from the previous tick. Used by AntiKnockbackCheck. */
     public int lastHurtTime;
-    public PlayerData playerData;
+    /** The player's latest movement sample and position history, updated in place every tick. */
+    public final PlayerData playerData = new PlayerData();
 
+    /** Input-independent surroundings of the player, refreshed once per tick before the checks run. */
+    public final EnvironmentSnapshot environment = new EnvironmentSnapshot();
 
     /**
-     * @return The {@link PlayerEntity} this state belongs to.
+     * The index of the candidate input that best matched this player's movement last tick.
+     * Used by the normal prediction engine to warm-start its search.
      */
-    public PlayerEntity getPlayer() {
-        return player;
-    }
+    public int lastBestInputIndex;
+
+    /** The blocks around the player, recaptured by the {@code CheckManager} when it is stale. */
+    public WorldSnapshot worldSnapshot;
+    /** Set when a block inside {@link #worldSnapshot} changed, forcing a new capture next tick. */
+    public boolean worldSnapshotDirty = true;
+
+    /** Recent simulated states, used to continue the prediction and to fit updates that span several ticks. */
+    public final SimulationHistory simulationHistory = new SimulationHistory();
+    /** This tick's one-tick simulations of the player, shared by the checks that need the same one. */
+    public final SimulationCache simulationCache = new SimulationCache();
+
+    /** Whether the {@code CheckScheduler} selected the player for checking this tick and the budget did not defer them. */
+    public boolean checkedThisTick = true;
+    /** The world tick the player was last checked on, or -1 if never. */
+    public long lastCheckedTick = -1;
+    /** The scheduler checks the player every tick until this world tick. */
+    public long fullRateUntilTick;
+    /** The number of consecutive ticks the player was deferred because the tick budget ran out. */
+    public int deferredTicks;
+
+    /**
+     * The latest position the server sent for the player, before the client smooths it out over the next
+     * ticks, or {@code null} until the first movement packet. Never set for the local player.
+     */
+    public Vec3d serverPosition;
+    /** The world tick {@link #serverPosition} arrived on. */
+    public long serverPositionTick;
+    /** Set when a movement packet arrived that the checks have not run on yet. */
+    public boolean serverUpdatePending;
+    /** The server position the previous movement update of the checks was built from. */
+    public Vec3d lastServerPosition;
+    /** The world tick {@link #lastServerPosition} arrived on. */
+    public long lastServerPositionTick;
+    /** The player's entry in the {@link PlayerGrid}, or -1 if they are not in it. */
+    public int gridSlot = -1;
+    /** The player's server positions and box sizes by arrival time, for rewinding them by a latency. */
+    public final EntityHistory entityHistory = new EntityHistory();
+
+    /** The length of a game tick at 20 TPS, used to express position deltas in blocks per tick. */
+    private static final double MILLIS_PER_TICK = 50.0;
+
+    /** The most melee hits of the player kept until the Reach check runs for them. */
+    public static final int MAX_PENDING_ATTACKS = 8;
+    /** The history of the player hit by each pending attack. */
+    public final EntityHistory[] attackTargets = new EntityHistory[MAX_PENDING_ATTACKS];
+    /** The arrival time of each pending attack, from {@link System#nanoTime()}. */
+    public final long[] attackTimes = new long[MAX_PENDING_ATTACKS];
+    /** The player's latency when each pending attack arrived, in milliseconds. */
+    public final int[] attackLatencies = new int[MAX_PENDING_ATTACKS];
+    /** The player's entity interaction range when each pending attack arrived, in blocks. */
+    public final double[] attackRanges = new double[MAX_PENDING_ATTACKS];
+    /** The number of pending attacks. Reset by the Reach check once it evaluated them. */
+    public int pendingAttacks;
+
 
     /**
      * Gets the current violation level for a specific check.
      *
-     * @param checkName The name of the check (e.g., from {@code Check.getName()}).
+     * @param checkId The ID of the check (from {@code Check.getId()}).
      * @return The current violation level, defaulting to 0 if not present.
      */
-    public int getViolationLevel(String checkName) {
-        return violationLevels.getOrDefault(checkName, 0);
+    public int getViolationLevel(int checkId) {
+        return checkId < violationLevels.length ? violationLevels[checkId] : 0;
     }
 
     /**
      * Increases the violation level for a specific check by a given amount.
      *
-     * @param checkName The name of the check.
+     * @param checkId The ID of the check.
      * @param amount The positive integer amount to increase by.
      * @return The new violation level.
      */
-    public int increaseViolationLevel(String checkName, int amount) {
-        int newLevel = getViolationLevel(checkName) + amount;
-        violationLevels.put(checkName, newLevel);
-        return newLevel;
+    public int increaseViolationLevel(int checkId, int amount) {
+        violationLevels = ensureCapacity(violationLevels, checkId);
+        return violationLevels[checkId] += amount;
     }
 
     /**
      * Increases the violation level for a specific check by 1.
      *
-     * @param checkName The name of the check.
+     * @param checkId The ID of the check.
      * @return The new violation level.
      */
-    public int increaseViolationLevel(String checkName) {
-        return increaseViolationLevel(checkName, 1);
+    public int increaseViolationLevel(int checkId) {
+        return increaseViolationLevel(checkId, 1);
     }
 
     /**
      * Decreases the violation level for a specific check by a given amount.
      * The level will not go below zero.
      *
-     * @param checkName The name of the check.
+     * @param checkId The ID of the check.
      * @param amount The positive integer amount to decrease by.
      * @return The new violation level.
      */
-    public int decreaseViolationLevel(String checkName, int amount) {
-        int newLevel = Math.max(0, getViolationLevel(checkName) - amount);
-        violationLevels.put(checkName, newLevel);
-        return newLevel;
+    public int decreaseViolationLevel(int checkId, int amount) {
+        violationLevels = ensureCapacity(violationLevels, checkId);
+        return violationLevels[checkId] = Math.max(0, violationLevels[checkId] - amount);
     }
 
     /**
      * Decreases the violation level for a specific check by 1.
      * The level will not go below zero.
      *
-     * @param checkName The name of the check.
+     * @param checkId The ID of the check.
      * @return The new violation level.
      */
-    public int decreaseViolationLevel(String checkName) {
-        return decreaseViolationLevel(checkName, 1);
+    public int decreaseViolationLevel(int checkId) {
+        return decreaseViolationLevel(checkId, 1);
     }
 
     /**
      * Resets the violation level for a specific check to zero.
      *
+     * @param checkId The ID of the check.
+     */
+    public void resetViolationLevel(int checkId) {
+        if (checkId < violationLevels.length) {
+            violationLevels[checkId] = 0;
+        }
+    }
+
+    /**
+     * Gets the violation level for a check by name. This is the slow path, meant for commands and tooling.
+     *
+     * @param checkName The name of the check (e.g., from {@code Check.getName()}).
+     * @return The current violation level, or 0 if the check is unknown.
+     */
+    public int getViolationLevel(String checkName) {
+        int checkId = CheckRegistry.getId(checkName);
+        return checkId < 0 ? 0 : getViolationLevel(checkId);
+    }
+
+    /**
+     * Resets the violation level for a check by name. This is the slow path, meant for commands and tooling.
+     *
      * @param checkName The name of the check.
      */
     public void resetViolationLevel(String checkName) {
-        violationLevels.put(checkName, 0);
+        int checkId = CheckRegistry.getId(checkName);
+        if (checkId >= 0) {
+            resetViolationLevel(checkId);
+        }
+    }
+
+    /**
+     * @param checkId The ID of the check.
+     * @return The check's general-purpose counter for this player.
+     */
+    public int getCounter(int checkId) {
+        return checkId < counters.length ? counters[checkId] : 0;
+    }
+
+    /**
+     * Sets the check's general-purpose counter for this player.
+     *
+     * @param checkId The ID of the check.
+     * @param value The new value.
+     */
+    public void setCounter(int checkId, int value) {
+        counters = ensureCapacity(counters, checkId);
+        counters[checkId] = value;
+    }
+
+    /**
+     * @return {@code true} if any check has a non-zero violation level or counter for this player.
+     */
+    public boolean hasViolations() {
+        for (int level : violationLevels) {
+            if (level > 0) {
+                return true;
+            }
+        }
+        for (int counter : counters) {
+            if (counter > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] ensureCapacity(int[] values, int checkId) {
+        return checkId < values.length ? values : Arrays.copyOf(values, Math.max(checkId + 1, CheckRegistry.size()));
     }
 
     /**
@@ -127,47 +243,122 @@ public class PlayerState {
      * @param player The player this state object belongs to.
      */
     public PlayerState(PlayerEntity player) {
-        this.player = player;
         this.wasOnGround = player.isOnGround();
         this.lastFallDistance = player.fallDistance;
         this.lastHurtTime = player.hurtTime;
-        this.speedingTicks = 0;
         // Initialize historical data
         this.lastPosition = player.getEntityPos();
         this.lastTickTime = System.currentTimeMillis();
-        this.playerData = new PlayerData(player, null, 20.0f);
+        this.playerData.update(player, 20.0f);
+    }
+
+    /**
+     * Constructs a new PlayerState object from a recorded frame, for replaying a session without a world.
+     * @param frame The first frame seen for the player.
+     */
+    public PlayerState(PlayerFrame frame) {
+        this.wasOnGround = frame.onGround;
+        this.lastFallDistance = frame.fallDistance;
+        this.lastHurtTime = frame.hurtTime;
+        this.lastPosition = frame.position;
+        this.lastTickTime = frame.timestamp;
+        this.playerData.update(frame, 20.0f);
     }
 
     /**
      * Calculates the player's velocity based on the change in position since the last tick.
      * This is crucial for checks on remote players where {@code getVelocity()} is unreliable.
-     * @return The calculated velocity as a {@link Vec3d}. Returns a zero vector if the time delta is zero.
+     * @param currentPos The player's position in the current tick.
+     * @param currentTime The timestamp of the current tick, in milliseconds.
+     * @return The calculated velocity in blocks per tick, like {@link #getServerVelocity()}, so checks can
+     *         compare it against a one-tick simulation. Returns a zero vector if the time delta is zero.
      */
-    public Vec3d getCalculatedVelocity() {
-        long timeDelta = System.currentTimeMillis() - lastTickTime;
+    public Vec3d getCalculatedVelocity(Vec3d currentPos, long currentTime) {
+        long timeDelta = currentTime - lastTickTime;
         if (timeDelta > 0) {
-            Vec3d currentPos = player.getEntityPos();
             return new Vec3d(
-                (currentPos.x - lastPosition.x) * 1000.0 / timeDelta,
-                (currentPos.y - lastPosition.y) * 1000.0 / timeDelta,
-                (currentPos.z - lastPosition.z) * 1000.0 / timeDelta
+                (currentPos.x - lastPosition.x) * MILLIS_PER_TICK / timeDelta,
+                (currentPos.y - lastPosition.y) * MILLIS_PER_TICK / timeDelta,
+                (currentPos.z - lastPosition.z) * MILLIS_PER_TICK / timeDelta
             );
         }
         return Vec3d.ZERO; // Avoid division by zero
     }
 
+    /**
+     * Records a position the server sent for the player. Must be called on the client thread.
+     *
+     * @param position The position from the packet, after applying it to the entity's tracked position.
+     * @param worldTime The world tick the packet arrived on.
+     * @param teleport Whether the server moved the player by a teleport, which is not movement the checks
+     *                 can verify. The next update then measures its velocity from the teleport target.
+     */
+    public void onServerMove(Vec3d position, long worldTime, boolean teleport) {
+        this.serverPosition = position;
+        this.serverPositionTick = worldTime;
+        if (teleport || lastServerPosition == null) {
+            this.lastServerPosition = position;
+            this.lastServerPositionTick = worldTime;
+            this.serverUpdatePending = false;
+        } else {
+            this.serverUpdatePending = true;
+        }
+    }
+
+    /**
+     * Queues a melee hit by the player for the Reach check. Hits beyond {@link #MAX_PENDING_ATTACKS} are
+     * dropped until the check ran. Must be called on the client thread.
+     *
+     * @param target The history of the player that was hit.
+     * @param time The arrival time of the hit, from {@link System#nanoTime()}.
+     * @param latency The player's latency in milliseconds.
+     * @param range The player's entity interaction range in blocks.
+     */
+    public void addAttack(EntityHistory target, long time, int latency, double range) {
+        if (pendingAttacks < MAX_PENDING_ATTACKS) {
+            attackTargets[pendingAttacks] = target;
+            attackTimes[pendingAttacks] = time;
+            attackLatencies[pendingAttacks] = latency;
+            attackRanges[pendingAttacks] = range;
+            pendingAttacks++;
+        }
+    }
+
+    /**
+     * Calculates the player's velocity from the two latest server positions, in blocks per tick. The
+     * server sends player movement only every other tick, so the delta is divided by the ticks between them.
+     *
+     * @return The velocity, or a zero vector if no movement arrived since the last update.
+     */
+    public Vec3d getServerVelocity() {
+        if (!serverUpdatePending) {
+            return Vec3d.ZERO;
+        }
+        long ticks = Math.max(1, serverPositionTick - lastServerPositionTick);
+        return serverPosition.subtract(lastServerPosition).multiply(1.0 / ticks);
+    }
+
     /**
      * Updates the state data that needs to be tracked from one tick to the next.
      * This method is called by the {@code CheckManager} at the end of each tick for the player,
      * ensuring that data for the next tick's checks (e.g., {@code wasOnGround}) is fresh.
+     *
+     * @param frame The frame the checks just ran on.
      */
-    public void update() {
-        this.wasOnGround = player.isOnGround();
-        this.lastFallDistance = player.fallDistance;
-        this.lastHurtTime = player.hurtTime;
+    public void update(PlayerFrame frame) {
+        this.wasOnGround = frame.onGround;
+        this.lastFallDistance = frame.fallDistance;
+        this.lastHurtTime = frame.hurtTime;
         // Update historical data for the next tick's velocity calculation
-        this.lastPosition = player.getEntityPos();
-        this.lastTickTime = System.currentTimeMillis();
-        this.playerData = new PlayerData(player, this.playerData, (float) TpsTracker.getInstance().getTps());
+        this.lastPosition = frame.position;
+        this.lastTickTime = frame.timestamp;
+        // A player the scheduler skipped or the budget deferred has not been checked against this movement
+        // yet, so it is kept pending and the next check measures it from the same start.
+        if (frame.movementUpdate && serverUpdatePending && checkedThisTick) {
+            this.lastServerPosition = serverPosition;
+            this.lastServerPositionTick = serverPositionTick;
+            this.serverUpdatePending = false;
+        }
+        this.playerData.update(frame, (float) frame.serverTps);
     }
 }
\ No newline at end of file
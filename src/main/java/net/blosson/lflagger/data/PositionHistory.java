@@ -0,0 +1,77 @@
+package net.blosson.lflagger.data;
+
+/**
+ * A fixed-capacity ring of a player's recent positions and their timestamps.
+ * <p>
+ * Samples are stored in parallel primitive arrays, so appending one overwrites the oldest slot
+ * instead of allocating, and every accessor is a plain index read. Samples are addressed by age:
+ * {@code 0} is the newest sample, {@code size() - 1} the oldest.
+ */
+public class PositionHistory {
+
+    /** The number of samples kept, one second of ticks. */
+    public static final int CAPACITY = 20;
+
+    private final long[] timestamps = new long[CAPACITY];
+    private final double[] xs = new double[CAPACITY];
+    private final double[] ys = new double[CAPACITY];
+    private final double[] zs = new double[CAPACITY];
+
+    /** The slot the next sample is written to. */
+    private int head;
+    private int size;
+
+    /**
+     * Appends a sample, dropping the oldest one once the ring is full.
+     */
+    public void add(long timestamp, double x, double y, double z) {
+        timestamps[head] = timestamp;
+        xs[head] = x;
+        ys[head] = y;
+        zs[head] = z;
+        head = (head + 1) % CAPACITY;
+        if (size < CAPACITY) {
+            size++;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * @param ago The age of the sample, {@code 0} for the newest. Must be less than {@link #size()}.
+     */
+    public long getTimestamp(int ago) {
+        return timestamps[slot(ago)];
+    }
+
+    public double getX(int ago) {
+        return xs[slot(ago)];
+    }
+
+    public double getY(int ago) {
+        return ys[slot(ago)];
+    }
+
+    public double getZ(int ago) {
+        return zs[slot(ago)];
+    }
+
+    private int slot(int ago) {
+        if (ago < 0 || ago >= size) {
+            throw new IndexOutOfBoundsException("Sample " + ago + " out of " + size);
+        }
+        int slot = head - 1 - ago;
+        return slot < 0 ? slot + CAPACITY : slot;
+    }
+}
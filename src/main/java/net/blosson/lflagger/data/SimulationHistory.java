@@ -0,0 +1,83 @@
+package net.blosson.lflagger.data;
+
+import net.blosson.lflagger.physics.kernel.MotionState;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size ring of simulated movement states for a single player, indexed by world tick.
+ * <p>
+ * Each entry holds the player's position and velocity at the end of a tick. When a position update
+ * spans several ticks, the prediction engine continues from the latest entry and fits one input to all
+ * of them, storing an entry for every tick in between, instead of treating the whole delta as a single
+ * tick.
+ * <p>
+ * All data is kept in parallel primitive arrays, so recording and loading do not allocate.
+ */
+public class SimulationHistory {
+
+    /** The number of ticks kept. Must be a power of two. */
+    public static final int CAPACITY = 32;
+    private static final int MASK = CAPACITY - 1;
+    private static final long NO_TICK = Long.MIN_VALUE;
+
+    private final long[] ticks = new long[CAPACITY];
+    private final double[] x = new double[CAPACITY];
+    private final double[] y = new double[CAPACITY];
+    private final double[] z = new double[CAPACITY];
+    private final double[] vx = new double[CAPACITY];
+    private final double[] vy = new double[CAPACITY];
+    private final double[] vz = new double[CAPACITY];
+
+    private long latestTick = NO_TICK;
+
+    public SimulationHistory() {
+        Arrays.fill(ticks, NO_TICK);
+    }
+
+    /**
+     * Stores the state for a tick, replacing whatever the ring held in that slot.
+     *
+     * @param tick The world tick the state belongs to.
+     * @param state The position and velocity at the end of the tick.
+     */
+    public void record(long tick, MotionState state) {
+        int slot = (int) (tick & MASK);
+        ticks[slot] = tick;
+        x[slot] = state.x;
+        y[slot] = state.y;
+        z[slot] = state.z;
+        vx[slot] = state.vx;
+        vy[slot] = state.vy;
+        vz[slot] = state.vz;
+        latestTick = tick;
+    }
+
+    /**
+     * @return {@code true} if the ring still holds an entry for the given tick.
+     */
+    public boolean contains(long tick) {
+        return tick != NO_TICK && ticks[(int) (tick & MASK)] == tick;
+    }
+
+    /**
+     * Copies the stored state of a tick into {@code out}.
+     *
+     * @return {@code false} if the tick is no longer (or was never) stored.
+     */
+    public boolean load(long tick, MotionState out) {
+        if (!contains(tick)) {
+            return false;
+        }
+        int slot = (int) (tick & MASK);
+        out.set(x[slot], y[slot], z[slot], vx[slot], vy[slot], vz[slot]);
+        return true;
+    }
+
+    /**
+     * @return The most recently recorded tick, or {@link Long#MIN_VALUE} if the ring is empty.
+     */
+    public long getLatestTick() {
+        return latestTick;
+    }
+}
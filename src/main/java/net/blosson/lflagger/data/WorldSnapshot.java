@@ -0,0 +1,306 @@
+package net.blosson.lflagger.data;
+
+import net.blosson.lflagger.physics.kernel.Collider;
+import net.blosson.lflagger.profiling.LatencyHistogram;
+import net.blosson.lflagger.profiling.Profiler;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.block.CobwebBlock;
+import net.minecraft.block.SlimeBlock;
+import net.minecraft.block.SoulSandBlock;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.shape.VoxelShape;
+import net.minecraft.world.World;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An immutable copy of the collision-relevant blocks in a small cuboid around a player.
+ * <p>
+ * Snapshots are captured on the client thread by the {@code CheckManager}. Once captured, the
+ * physics engines read collision boxes, friction classes and cobweb flags from here, so
+ * simulations on worker threads never have to touch the world. A snapshot is kept for as long
+ * as the player stays on the same block and no block inside it changes; only then is a new one
+ * captured.
+ * <p>
+ * Collision boxes are flattened into a {@code double} array in the {@link Collider} layout. Per-block
+ * data is packed into one byte per cell.
+ */
+public final class WorldSnapshot implements Collider {
+
+    /** Blocks captured on each horizontal side of the player's block. */
+    public static final int RADIUS_HORIZONTAL = 3;
+    /** Blocks captured below the player's block. */
+    public static final int RADIUS_DOWN = 3;
+    /** Blocks captured above the player's block. Covers the player's height plus a jump and a step. */
+    public static final int RADIUS_UP = 4;
+
+    public static final int SIZE_X = RADIUS_HORIZONTAL * 2 + 1;
+    public static final int SIZE_Y = RADIUS_DOWN + RADIUS_UP + 1;
+    public static final int SIZE_Z = RADIUS_HORIZONTAL * 2 + 1;
+
+    // Layout of a cell byte. The two lowest bits hold the GroundType ordinal.
+    private static final int GROUND_TYPE_MASK = 0b11;
+    private static final byte FLAG_COBWEB = 1 << 2;
+
+    private static final EnvironmentSnapshot.GroundType[] GROUND_TYPES = EnvironmentSnapshot.GroundType.values();
+
+    private static final LatencyHistogram CAPTURE_TIMER = Profiler.timer("snapshot.capture");
+
+    // Capture cost, shared by all players.
+    private static final LongAdder captures = new LongAdder();
+    private static final LongAdder captureNanos = new LongAdder();
+    private static final LongAdder reuses = new LongAdder();
+
+    /** The world the snapshot was taken from. Only compared by identity, never queried. */
+    private final World world;
+    private final int originX;
+    private final int originY;
+    private final int originZ;
+
+    private final byte[] cells;
+    private final float[] slipperiness;
+    private final double[] boxes;
+    private final int boxCount;
+
+    private WorldSnapshot(World world, int originX, int originY, int originZ,
+                          byte[] cells, float[] slipperiness, double[] boxes, int boxCount) {
+        this.world = world;
+        this.originX = originX;
+        this.originY = originY;
+        this.originZ = originZ;
+        this.cells = cells;
+        this.slipperiness = slipperiness;
+        this.boxes = boxes;
+        this.boxCount = boxCount;
+    }
+
+    /**
+     * Rebuilds a snapshot from previously recorded data. The result is not tied to any world, so
+     * {@link #isCenteredOn(PlayerEntity)} is always {@code false} for it.
+     */
+    public static WorldSnapshot fromRecorded(int originX, int originY, int originZ,
+                                             byte[] cells, float[] slipperiness, double[] boxes, int boxCount) {
+        return new WorldSnapshot(null, originX, originY, originZ, cells, slipperiness, boxes, boxCount);
+    }
+
+    /**
+     * Copies the blocks around a player. Must be called on the client thread.
+     *
+     * @param player The player to capture the surroundings of.
+     * @return A new snapshot centered on the player's block.
+     */
+    public static WorldSnapshot capture(PlayerEntity player) {
+        long start = System.nanoTime();
+        long profilerStart = Profiler.start();
+
+        World world = player.getEntityWorld();
+        BlockPos center = player.getBlockPos();
+        int originX = center.getX() - RADIUS_HORIZONTAL;
+        int originY = center.getY() - RADIUS_DOWN;
+        int originZ = center.getZ() - RADIUS_HORIZONTAL;
+
+        byte[] cells = new byte[SIZE_X * SIZE_Y * SIZE_Z];
+        float[] slipperiness = new float[cells.length];
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        for (int y = 0; y < SIZE_Y; y++) {
+            for (int z = 0; z < SIZE_Z; z++) {
+                for (int x = 0; x < SIZE_X; x++) {
+                    pos.set(originX + x, originY + y, originZ + z);
+                    BlockState state = world.getBlockState(pos);
+                    int index = index(x, y, z);
+                    cells[index] = encode(state);
+                    slipperiness[index] = state.getBlock().getSlipperiness();
+                }
+            }
+        }
+
+        // The collision shapes are queried with the player as context, as the game does for its own movement.
+        Box region = new Box(originX, originY, originZ, originX + SIZE_X, originY + SIZE_Y, originZ + SIZE_Z);
+        double[] boxes = new double[STRIDE * 32];
+        int boxCount = 0;
+        for (VoxelShape shape : world.getBlockCollisions(player, region)) {
+            for (Box box : shape.getBoundingBoxes()) {
+                int offset = boxCount * STRIDE;
+                if (offset + STRIDE > boxes.length) {
+                    boxes = Arrays.copyOf(boxes, boxes.length * 2);
+                }
+                boxes[offset + MIN_X] = box.minX;
+                boxes[offset + MIN_Y] = box.minY;
+                boxes[offset + MIN_Z] = box.minZ;
+                boxes[offset + MAX_X] = box.maxX;
+                boxes[offset + MAX_Y] = box.maxY;
+                boxes[offset + MAX_Z] = box.maxZ;
+                boxCount++;
+            }
+        }
+
+        WorldSnapshot snapshot = new WorldSnapshot(world, originX, originY, originZ, cells, slipperiness, boxes, boxCount);
+        captures.increment();
+        captureNanos.add(System.nanoTime() - start);
+        Profiler.stop(CAPTURE_TIMER, profilerStart);
+        return snapshot;
+    }
+
+    private static byte encode(BlockState state) {
+        Block block = state.getBlock();
+        EnvironmentSnapshot.GroundType groundType;
+        if (state.isOf(Blocks.ICE) || state.isOf(Blocks.PACKED_ICE) || state.isOf(Blocks.FROSTED_ICE)) {
+            groundType = EnvironmentSnapshot.GroundType.ICE;
+        } else if (block instanceof SoulSandBlock) {
+            groundType = EnvironmentSnapshot.GroundType.SOUL_SAND;
+        } else if (block instanceof SlimeBlock) {
+            groundType = EnvironmentSnapshot.GroundType.SLIME;
+        } else {
+            groundType = EnvironmentSnapshot.GroundType.NORMAL;
+        }
+
+        int flags = groundType.ordinal();
+        if (block instanceof CobwebBlock) {
+            flags |= FLAG_COBWEB;
+        }
+        return (byte) flags;
+    }
+
+    private static int index(int x, int y, int z) {
+        return (y * SIZE_Z + z) * SIZE_X + x;
+    }
+
+    /**
+     * @return {@code true} if this snapshot can be used again for a player, i.e. it was taken in the
+     *         player's current world around the player's current block.
+     */
+    public boolean isCenteredOn(PlayerEntity player) {
+        BlockPos center = player.getBlockPos();
+        return world == player.getEntityWorld()
+                && originX == center.getX() - RADIUS_HORIZONTAL
+                && originY == center.getY() - RADIUS_DOWN
+                && originZ == center.getZ() - RADIUS_HORIZONTAL;
+    }
+
+    /**
+     * @return {@code true} if the given block lies inside the captured cuboid.
+     */
+    public boolean contains(int x, int y, int z) {
+        return x >= originX && x < originX + SIZE_X
+                && y >= originY && y < originY + SIZE_Y
+                && z >= originZ && z < originZ + SIZE_Z;
+    }
+
+    /**
+     * @return {@code true} if the given region lies entirely inside the captured cuboid, i.e. no block it
+     *         reaches into was left out.
+     */
+    public boolean contains(Box region) {
+        return region.minX >= originX && region.maxX <= originX + SIZE_X
+                && region.minY >= originY && region.maxY <= originY + SIZE_Y
+                && region.minZ >= originZ && region.maxZ <= originZ + SIZE_Z;
+    }
+
+    /**
+     * @return {@code true} if the captured cuboid overlaps the given chunk column.
+     */
+    public boolean overlapsChunk(int chunkX, int chunkZ) {
+        int minX = chunkX << 4;
+        int minZ = chunkZ << 4;
+        return originX < minX + 16 && originX + SIZE_X > minX
+                && originZ < minZ + 16 && originZ + SIZE_Z > minZ;
+    }
+
+    /**
+     * @return The friction class of a block, or {@code NORMAL} outside the snapshot.
+     */
+    public EnvironmentSnapshot.GroundType getGroundType(int x, int y, int z) {
+        if (!contains(x, y, z)) {
+            return EnvironmentSnapshot.GroundType.NORMAL;
+        }
+        return GROUND_TYPES[cells[index(x - originX, y - originY, z - originZ)] & GROUND_TYPE_MASK];
+    }
+
+    /**
+     * @return The slipperiness of a block, or the default of {@code 0.6} outside the snapshot.
+     */
+    public float getSlipperiness(int x, int y, int z) {
+        if (!contains(x, y, z)) {
+            return 0.6f;
+        }
+        return slipperiness[index(x - originX, y - originY, z - originZ)];
+    }
+
+    public boolean isCobweb(int x, int y, int z) {
+        return hasFlag(x, y, z, FLAG_COBWEB);
+    }
+
+    private boolean hasFlag(int x, int y, int z, byte flag) {
+        return contains(x, y, z) && (cells[index(x - originX, y - originY, z - originZ)] & flag) != 0;
+    }
+
+    public int getOriginX() {
+        return originX;
+    }
+
+    public int getOriginY() {
+        return originY;
+    }
+
+    public int getOriginZ() {
+        return originZ;
+    }
+
+    /**
+     * @return The packed per-block data, in x-fastest order. Must not be modified.
+     */
+    public byte[] getCells() {
+        return cells;
+    }
+
+    /**
+     * @return The per-block slipperiness, in the same order as {@link #getCells()}. Must not be modified.
+     */
+    public float[] getSlipperinessValues() {
+        return slipperiness;
+    }
+
+    @Override
+    public int getBoxCount() {
+        return boxCount;
+    }
+
+    @Override
+    public double[] getBoxes() {
+        return boxes;
+    }
+
+    /**
+     * Records that a player's previous snapshot was used again instead of capturing a new one.
+     */
+    public static void recordReuse() {
+        reuses.increment();
+    }
+
+    /**
+     * @return The number of snapshots captured so far.
+     */
+    public static long getCaptures() {
+        return captures.sum();
+    }
+
+    /**
+     * @return The number of times an existing snapshot was reused.
+     */
+    public static long getReuses() {
+        return reuses.sum();
+    }
+
+    /**
+     * @return The average time a capture took, in microseconds.
+     */
+    public static double getAverageCaptureMicros() {
+        long count = captures.sum();
+        return count == 0 ? 0.0 : captureNanos.sum() / 1000.0 / count;
+    }
+}
@@ -0,0 +1,182 @@
+package net.blosson.lflagger.flaglog;
+
+import net.blosson.lflagger.LFlagger;
+import net.blosson.lflagger.config.ConfigManager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends every flag to a log file in {@code config/lflagger/flags}, so a session can be reviewed afterwards
+ * with the {@link FlagLogReader}.
+ * <p>
+ * The client thread only offers entries to a bounded queue, which a background thread drains to disk. If
+ * the writer falls behind and the queue is full, entries are dropped and counted rather than blocking the
+ * game. Each session, i.e. each joined server, writes its own files, named after the time the session
+ * started, and a new part is started whenever the current one exceeds {@code flag_log_max_bytes}.
+ * <p>
+ * The format is one tab-separated line per flag:
+ * <pre>
+ *   epochMillis  worldTick  entityId  playerName  checkName  certainty|-  violationLevel|-
+ * </pre>
+ * Lines starting with {@code #} are comments.
+ */
+public class FlagLog {
+
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final FlagLog INSTANCE = new FlagLog();
+
+    /** One flag waiting to be written. */
+    private record Entry(long session, long timestamp, long tick, int entityId, String name, String check,
+                         double certainty, int violationLevel) {}
+
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    /** When the current session started. Entries carry it, so each is written to the session it was raised in. */
+    private volatile long sessionStart = System.currentTimeMillis();
+    private Thread writerThread;
+    private volatile boolean closing;
+    private long dropped;
+
+    // Owned by the writer thread.
+    private BufferedWriter writer;
+    private long writtenBytes;
+    private long writerSession;
+    private int part;
+
+    private FlagLog() {}
+
+    public static FlagLog getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return The directory flag logs are written to.
+     */
+    public static Path getDirectory() {
+        return ConfigManager.getConfigDir().resolve("lflagger").resolve("flags");
+    }
+
+    /**
+     * Starts a new session, e.g. when joining a server, so its flags go to a new series of files.
+     */
+    public void startSession() {
+        sessionStart = System.currentTimeMillis();
+    }
+
+    /**
+     * Queues a flag for writing. Never blocks; the entry is dropped if the queue is full. Must be called
+     * on the client thread.
+     *
+     * @param tick The world tick the flag was raised on.
+     * @param entityId The flagged player's entity ID.
+     * @param name The flagged player's name.
+     * @param check The name of the check.
+     * @param certainty The certainty, or {@code NaN} if the check does not report one.
+     * @param violationLevel The violation level, or -1 if none was reported.
+     */
+    public void append(long tick, int entityId, String name, String check, double certainty, int violationLevel) {
+        if (closing) {
+            return;
+        }
+        if (writerThread == null) {
+            writerThread = new Thread(this::run, "LFlagger Flag Log Writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+        if (!queue.offer(new Entry(sessionStart, System.currentTimeMillis(), tick, entityId, name, check, certainty, violationLevel))) {
+            if (dropped++ % 1000 == 0) {
+                LFlagger.LOGGER.warn("Flag log queue is full, {} entries dropped so far", dropped);
+            }
+        }
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>();
+        try {
+            while (!closing || !queue.isEmpty()) {
+                Entry first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch);
+                for (Entry entry : batch) {
+                    write(entry);
+                }
+                batch.clear();
+                // Flush once the queue is drained, so the file is complete whenever the writer is idle.
+                writer.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            LFlagger.LOGGER.error("Failed to write the flag log, no further flags will be logged", e);
+            closing = true;
+        } finally {
+            closeWriter();
+        }
+    }
+
+    private void write(Entry entry) throws IOException {
+        long maxBytes = ConfigManager.getInstance().getConfig().getAlerts().flagLogMaxBytes;
+        if (writer == null || entry.session() != writerSession) {
+            openPart(entry.session(), 0);
+        } else if (maxBytes > 0 && writtenBytes >= maxBytes) {
+            openPart(writerSession, part + 1);
+        }
+        String line = entry.timestamp() + "\t" + entry.tick() + "\t" + entry.entityId() + "\t" + entry.name()
+                + "\t" + entry.check()
+                + "\t" + (Double.isNaN(entry.certainty()) ? "-" : String.format(Locale.ROOT, "%.2f", entry.certainty()))
+                + "\t" + (entry.violationLevel() < 0 ? "-" : Integer.toString(entry.violationLevel())) + "\n";
+        writer.write(line);
+        writtenBytes += line.length(); // Characters, which is close enough for rotation.
+    }
+
+    private void openPart(long session, int number) throws IOException {
+        closeWriter();
+        Path directory = getDirectory();
+        Files.createDirectories(directory);
+        Path path = directory.resolve("flags-" + session + "-" + number + ".log");
+        writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        writer.write("# LFlagger flag log, session " + session + "\n");
+        writtenBytes = 0;
+        writerSession = session;
+        part = number;
+    }
+
+    private void closeWriter() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            LFlagger.LOGGER.error("Failed to close the flag log", e);
+        }
+        writer = null;
+    }
+
+    /**
+     * Writes out the queued entries and stops the writer thread, waiting a short while for it to finish.
+     */
+    public void close() {
+        closing = true;
+        if (writerThread != null) {
+            try {
+                writerThread.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
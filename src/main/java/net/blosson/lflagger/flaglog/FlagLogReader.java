@@ -0,0 +1,124 @@
+package net.blosson.lflagger.flaglog;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Summarises flag logs written by {@link FlagLog}, per player and per check.
+ * <p>
+ * Usage: {@code FlagLogReader [file-or-directory...]}. Without arguments, every log in
+ * {@code ./config/lflagger/flags} is read.
+ */
+public class FlagLogReader {
+
+    /** The flags of one player by one check. */
+    private static final class Tally {
+        long count;
+        double maxCertainty = Double.NaN;
+        long firstSeen = Long.MAX_VALUE;
+        long lastSeen = Long.MIN_VALUE;
+
+        void add(long timestamp, double certainty) {
+            count++;
+            if (!Double.isNaN(certainty) && !(certainty <= maxCertainty)) {
+                maxCertainty = certainty;
+            }
+            firstSeen = Math.min(firstSeen, timestamp);
+            lastSeen = Math.max(lastSeen, timestamp);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (args.length == 0) {
+            collect(Path.of("config", "lflagger", "flags"), files);
+        }
+        for (String arg : args) {
+            collect(Path.of(arg), files);
+        }
+        if (files.isEmpty()) {
+            System.err.println("No flag logs found.");
+            System.exit(1);
+        }
+
+        // player -> check -> tally, sorted by name for stable output
+        Map<String, Map<String, Tally>> tallies = new TreeMap<>();
+        Map<String, Tally> checkTotals = new TreeMap<>();
+        long malformed = 0;
+        for (Path file : files) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty() || line.startsWith("#")) {
+                        continue;
+                    }
+                    String[] fields = line.split("\t");
+                    if (fields.length < 7) {
+                        malformed++;
+                        continue;
+                    }
+                    try {
+                        long timestamp = Long.parseLong(fields[0]);
+                        double certainty = fields[5].equals("-") ? Double.NaN : Double.parseDouble(fields[5]);
+                        tallies.computeIfAbsent(fields[3], name -> new TreeMap<>())
+                                .computeIfAbsent(fields[4], check -> new Tally())
+                                .add(timestamp, certainty);
+                        checkTotals.computeIfAbsent(fields[4], check -> new Tally()).add(timestamp, certainty);
+                    } catch (NumberFormatException e) {
+                        malformed++;
+                    }
+                }
+            }
+        }
+
+        System.out.printf("%d log file(s)%s%n", files.size(), malformed == 0 ? "" : ", " + malformed + " malformed line(s) skipped");
+        System.out.println();
+        System.out.println("Per check:");
+        for (Map.Entry<String, Tally> entry : checkTotals.entrySet()) {
+            System.out.printf("  %-16s %8d flags  max %s%n", entry.getKey(), entry.getValue().count, formatCertainty(entry.getValue()));
+        }
+
+        System.out.println();
+        System.out.println("Per player:");
+        tallies.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, Map<String, Tally>> e) ->
+                        e.getValue().values().stream().mapToLong(t -> t.count).sum()).reversed())
+                .forEach(player -> {
+                    long total = player.getValue().values().stream().mapToLong(t -> t.count).sum();
+                    System.out.printf("  %s: %d flags%n", player.getKey(), total);
+                    for (Map.Entry<String, Tally> check : player.getValue().entrySet()) {
+                        Tally tally = check.getValue();
+                        System.out.printf("    %-16s %8d  max %-8s over %s%n", check.getKey(), tally.count,
+                                formatCertainty(tally), formatDuration(tally.lastSeen - tally.firstSeen));
+                    }
+                });
+    }
+
+    private static void collect(Path path, List<Path> files) throws IOException {
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> entries = Files.list(path)) {
+                entries.filter(p -> p.getFileName().toString().endsWith(".log")).sorted().forEach(files::add);
+            }
+        } else if (Files.isRegularFile(path)) {
+            files.add(path);
+        }
+    }
+
+    private static String formatCertainty(Tally tally) {
+        return Double.isNaN(tally.maxCertainty) ? "-" : String.format("%.2f%%", tally.maxCertainty);
+    }
+
+    private static String formatDuration(long millis) {
+        long seconds = millis / 1000;
+        return seconds < 60 ? seconds + "s" : (seconds / 60) + "m" + (seconds % 60) + "s";
+    }
+}
@@ -2,10 +2,20 @@ package net.blosson.lflagger.mixin;
 
 import net.blosson.lflagger.data.PlayerData;
 import net.blosson.lflagger.data.PlayerDataProvider;
-import net.blosson.lflagger.manager.TickManager;
 import net.blosson.lflagger.manager.UncertaintyManager;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.network.ClientPlayNetworkHandler;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.damage.DamageTypes;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.network.packet.s2c.play.BlockUpdateS2CPacket;
+import net.minecraft.network.packet.s2c.play.ChunkDataS2CPacket;
+import net.minecraft.network.packet.s2c.play.ChunkDeltaUpdateS2CPacket;
+import net.minecraft.network.packet.s2c.play.EntityDamageS2CPacket;
+import net.minecraft.network.packet.s2c.play.EntityPositionS2CPacket;
+import net.minecraft.network.packet.s2c.play.EntityPositionSyncS2CPacket;
+import net.minecraft.network.packet.s2c.play.EntityS2CPacket;
+import net.minecraft.network.packet.s2c.play.EntityStatusEffectS2CPacket;
 import net.minecraft.network.packet.s2c.play.EntityVelocityUpdateS2CPacket;
 import net.minecraft.network.packet.s2c.play.PlayerPositionLookS2CPacket;
 import net.minecraft.network.packet.s2c.play.WorldTimeUpdateS2CPacket;
@@ -19,7 +29,11 @@ import java.util.Queue;
 
 import net.blosson.lflagger.LFlagger;
 import net.blosson.lflagger.checks.CheckManager;
+import net.blosson.lflagger.util.TimingService;
+import net.minecraft.network.packet.s2c.play.PlayerListS2CPacket;
 import net.minecraft.network.packet.s2c.play.PlayerRemoveS2CPacket;
+import net.minecraft.network.packet.s2c.play.RemoveEntityStatusEffectS2CPacket;
+import net.minecraft.network.packet.s2c.play.UnloadChunkS2CPacket;
 
 import java.util.UUID;
 
@@ -38,13 +52,30 @@ public class ClientPlayNetworkHandlerMixin {
     @Inject(method = "onPlayerRemove", at = @At("TAIL"))
     private void onPlayerRemove(PlayerRemoveS2CPacket packet, CallbackInfo ci) {
         CheckManager checkManager = LFlagger.getInstance().getCheckManager();
-        if (checkManager != null) {
-            for (UUID playerUuid : packet.profileIds()) {
+        for (UUID playerUuid : packet.profileIds()) {
+            TimingService.getInstance().removePlayer(playerUuid);
+            if (checkManager != null) {
                 checkManager.onPlayerLeave(playerUuid);
             }
         }
     }
 
+    /**
+     * Copies player latencies into the timing service as the player list reports them, so the checks
+     * never have to look them up in the player list themselves.
+     */
+    @Inject(method = "onPlayerList", at = @At("TAIL"))
+    private void onPlayerList(PlayerListS2CPacket packet, CallbackInfo ci) {
+        if (!packet.getActions().contains(PlayerListS2CPacket.Action.UPDATE_LATENCY)
+                && !packet.getActions().contains(PlayerListS2CPacket.Action.ADD_PLAYER)) {
+            return;
+        }
+        TimingService timing = TimingService.getInstance();
+        for (PlayerListS2CPacket.Entry entry : packet.getEntries()) {
+            timing.setLatency(entry.profileId(), entry.latency());
+        }
+    }
+
     @Inject(method = "onPlayerPositionLook", at = @At("TAIL"))
     private void onPlayerPositionLook(PlayerPositionLookS2CPacket packet, CallbackInfo ci) {
         UncertaintyManager.getInstance().onPositionLookPacket(packet);
@@ -53,6 +84,66 @@ public class ClientPlayNetworkHandlerMixin {
         // For now, this is a placeholder for future, more advanced logic.
     }
 
+    /**
+     * Relative moves are the regular movement updates of remote players. Packets that only rotate the
+     * player carry no new position and are ignored.
+     */
+    @Inject(method = "onEntity", at = @At("TAIL"))
+    private void onEntity(EntityS2CPacket packet, CallbackInfo ci) {
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (packet.isPositionChanged() && client.world != null) {
+            notifyServerMove(packet.getEntity(client.world), false);
+        }
+    }
+
+    /**
+     * Periodic absolute positions, also sent instead of a relative move when the player moved too far for one.
+     */
+    @Inject(method = "onEntityPositionSync", at = @At("TAIL"))
+    private void onEntityPositionSync(EntityPositionSyncS2CPacket packet, CallbackInfo ci) {
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client.world != null) {
+            notifyServerMove(client.world.getEntityById(packet.id()), false);
+        }
+    }
+
+    @Inject(method = "onEntityPosition", at = @At("TAIL"))
+    private void onEntityPosition(EntityPositionS2CPacket packet, CallbackInfo ci) {
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client.world != null) {
+            notifyServerMove(client.world.getEntityById(packet.entityId()), true);
+        }
+    }
+
+    /**
+     * Hands the position the server sent for a remote player to the CheckManager. The handlers have
+     * already stored it as the entity's tracked position, which the entity is then smoothly moved towards.
+     */
+    private void notifyServerMove(Entity entity, boolean teleport) {
+        CheckManager checkManager = LFlagger.getInstance().getCheckManager();
+        if (checkManager != null && entity instanceof PlayerEntity player && !player.isMainPlayer()) {
+            checkManager.onServerMove(player, teleport);
+        }
+    }
+
+    /**
+     * Melee hits between players show up as damage with the attacker as both the direct and the causing
+     * entity. They are handed to the CheckManager for the Reach check.
+     */
+    @Inject(method = "onEntityDamage", at = @At("TAIL"))
+    private void onEntityDamage(EntityDamageS2CPacket packet, CallbackInfo ci) {
+        MinecraftClient client = MinecraftClient.getInstance();
+        CheckManager checkManager = LFlagger.getInstance().getCheckManager();
+        if (checkManager == null || client.world == null || packet.sourceCauseId() != packet.sourceDirectId()
+                || !packet.sourceType().matchesKey(DamageTypes.PLAYER_ATTACK)) {
+            return;
+        }
+        if (client.world.getEntityById(packet.sourceCauseId()) instanceof PlayerEntity attacker
+                && client.world.getEntityById(packet.entityId()) instanceof PlayerEntity target) {
+            checkManager.onPlayerAttack(attacker, target);
+        }
+    }
+
     @Inject(method = "onEntityVelocityUpdate", at = @At("TAIL"))
     private void onEntityVelocityUpdate(EntityVelocityUpdateS2CPacket packet, CallbackInfo ci) {
         MinecraftClient client = MinecraftClient.getInstance();
@@ -61,8 +152,66 @@ public class ClientPlayNetworkHandlerMixin {
         }
     }
 
+    @Inject(method = "onEntityStatusEffect", at = @At("TAIL"))
+    private void onEntityStatusEffect(EntityStatusEffectS2CPacket packet, CallbackInfo ci) {
+        notifyEffectsChanged(packet.getEntityId());
+    }
+
+    @Inject(method = "onRemoveEntityStatusEffect", at = @At("TAIL"))
+    private void onRemoveEntityStatusEffect(RemoveEntityStatusEffectS2CPacket packet, CallbackInfo ci) {
+        notifyEffectsChanged(packet.entityId());
+    }
+
+    /**
+     * Lets the CheckManager know that a player's status effects changed, so their cached
+     * environment snapshot re-reads the effect amplifiers instead of querying them every tick.
+     */
+    private void notifyEffectsChanged(int entityId) {
+        MinecraftClient client = MinecraftClient.getInstance();
+        CheckManager checkManager = LFlagger.getInstance().getCheckManager();
+        if (checkManager != null && client.world != null && client.world.getEntityById(entityId) instanceof PlayerEntity player) {
+            checkManager.onEffectsChanged(player.getUuid());
+        }
+    }
+
+    @Inject(method = "onBlockUpdate", at = @At("TAIL"))
+    private void onBlockUpdate(BlockUpdateS2CPacket packet, CallbackInfo ci) {
+        CheckManager checkManager = LFlagger.getInstance().getCheckManager();
+        if (checkManager != null) {
+            checkManager.onBlockChanged(packet.getPos().getX(), packet.getPos().getY(), packet.getPos().getZ());
+        }
+    }
+
+    @Inject(method = "onChunkDeltaUpdate", at = @At("TAIL"))
+    private void onChunkDeltaUpdate(ChunkDeltaUpdateS2CPacket packet, CallbackInfo ci) {
+        CheckManager checkManager = LFlagger.getInstance().getCheckManager();
+        if (checkManager != null) {
+            packet.visitUpdates((pos, state) -> checkManager.onBlockChanged(pos.getX(), pos.getY(), pos.getZ()));
+        }
+    }
+
+    /**
+     * Whole chunks arriving or being unloaded invalidate any world snapshot that overlaps them,
+     * so the checks never simulate against blocks the client no longer has.
+     */
+    @Inject(method = "onChunkData", at = @At("TAIL"))
+    private void onChunkData(ChunkDataS2CPacket packet, CallbackInfo ci) {
+        CheckManager checkManager = LFlagger.getInstance().getCheckManager();
+        if (checkManager != null) {
+            checkManager.onChunkChanged(packet.getChunkX(), packet.getChunkZ());
+        }
+    }
+
+    @Inject(method = "onUnloadChunk", at = @At("TAIL"))
+    private void onUnloadChunk(UnloadChunkS2CPacket packet, CallbackInfo ci) {
+        CheckManager checkManager = LFlagger.getInstance().getCheckManager();
+        if (checkManager != null) {
+            checkManager.onChunkChanged(packet.pos().x, packet.pos().z);
+        }
+    }
+
     @Inject(method = "onWorldTimeUpdate", at = @At("TAIL"))
     private void onWorldTimeUpdate(WorldTimeUpdateS2CPacket packet, CallbackInfo ci) {
-        TickManager.getInstance().onWorldTimeUpdate(packet);
+        TimingService.getInstance().onWorldTimeUpdate(packet.time());
     }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import net.blosson.lflagger.LFlagger;
 import net.blosson.lflagger.checks.CheckManager;
 import net.blosson.lflagger.util.DamageTiltTracker;
 import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ClientPlayerEntity;
 import net.minecraft.client.world.ClientWorld;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
@@ -17,6 +18,9 @@ public class MinecraftClientMixin {
     @Shadow
     public ClientWorld world;
 
+    @Shadow
+    public ClientPlayerEntity player;
+
     /**
      * Injects into the client's main tick loop to run all cheat checks.
      * This is the main driver for the cheat detection system.
@@ -29,12 +33,12 @@ public class MinecraftClientMixin {
         }
 
         CheckManager checkManager = mod.getCheckManager();
-        if (checkManager != null && this.world != null) {
+        if (checkManager != null && this.world != null && this.player != null) {
             // Prune the damage tilt tracker to prevent memory leaks
             DamageTiltTracker.getInstance().pruneOldEntries(this.world.getTime());
 
-            // Iterate over all players in the world and run checks for each one
-            this.world.getPlayers().forEach(checkManager::tick);
+            // Run checks for all players in the world
+            checkManager.tick(this.player, this.world.getPlayers());
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package net.blosson.lflagger.physics;
+
+import net.blosson.lflagger.data.PlayerFrame;
+import net.blosson.lflagger.data.WorldSnapshot;
+import net.blosson.lflagger.physics.kernel.Collider;
+import net.minecraft.util.math.Box;
+
+import java.util.Arrays;
+
+/**
+ * A reusable broadphase set of block collision boxes, stored as a flat primitive array.
+ * <p>
+ * Every input candidate of a prediction starts from the same position, so the boxes only have to
+ * be gathered once per player per tick for the union of all candidates' swept boxes. The boxes are
+ * stored in {@link #data} using the {@link Collider} layout. The array only grows, so steady-state
+ * gathering does not allocate.
+ */
+public class CollisionBoxes implements Collider {
+
+    /** The flattened boxes. Only the first {@code size() * STRIDE} entries are valid. */
+    public double[] data = new double[STRIDE * 64];
+    private int count;
+
+    /**
+     * Replaces the current contents with every block collision box that any of the candidate
+     * movements could touch.
+     * <p>
+     * The queried region is the player's bounding box stretched by the extremes of all candidate
+     * velocities, plus the player's step height upwards so the step-up pass is covered as well.
+     * Entity collisions are deliberately left out: they rarely matter for player movement and
+     * would otherwise make up a large part of the query cost.
+     * <p>
+     * The boxes are taken from the frame's {@link WorldSnapshot} instead of the world, so this is
+     * safe to call from any thread. Blocks outside the snapshot are not collided with.
+     *
+     * @param frame The player frame whose world snapshot and bounding box are used.
+     * @param minDx The smallest candidate X velocity.
+     * @param maxDx The largest candidate X velocity.
+     * @param minDy The smallest candidate Y velocity.
+     * @param maxDy The largest candidate Y velocity.
+     * @param minDz The smallest candidate Z velocity.
+     * @param maxDz The largest candidate Z velocity.
+     * @return {@code true} if the snapshot covers the whole region, {@code false} if boxes may be missing.
+     */
+    public boolean gather(PlayerFrame frame, double minDx, double maxDx, double minDy, double maxDy, double minDz, double maxDz) {
+        Box playerBox = frame.boundingBox;
+        Box region = new Box(
+                playerBox.minX + Math.min(0.0, minDx),
+                playerBox.minY + Math.min(0.0, minDy),
+                playerBox.minZ + Math.min(0.0, minDz),
+                playerBox.maxX + Math.max(0.0, maxDx),
+                playerBox.maxY + Math.max(Math.max(0.0, maxDy), frame.stepHeight),
+                playerBox.maxZ + Math.max(0.0, maxDz));
+
+        count = 0;
+        WorldSnapshot snapshot = frame.worldSnapshot;
+        double[] source = snapshot.getBoxes();
+        int end = snapshot.getBoxCount() * STRIDE;
+        for (int i = 0; i < end; i += STRIDE) {
+            if (source[i + MAX_X] > region.minX && source[i + MIN_X] < region.maxX
+                    && source[i + MAX_Y] > region.minY && source[i + MIN_Y] < region.maxY
+                    && source[i + MAX_Z] > region.minZ && source[i + MIN_Z] < region.maxZ) {
+                add(source[i + MIN_X], source[i + MIN_Y], source[i + MIN_Z], source[i + MAX_X], source[i + MAX_Y], source[i + MAX_Z]);
+            }
+        }
+        return snapshot.contains(region);
+    }
+
+    /**
+     * Appends a single box to the set.
+     */
+    public void add(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        int offset = count * STRIDE;
+        if (offset + STRIDE > data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        data[offset + MIN_X] = minX;
+        data[offset + MIN_Y] = minY;
+        data[offset + MIN_Z] = minZ;
+        data[offset + MAX_X] = maxX;
+        data[offset + MAX_Y] = maxY;
+        data[offset + MAX_Z] = maxZ;
+        count++;
+    }
+
+    /**
+     * @return The number of boxes currently held.
+     */
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int getBoxCount() {
+        return count;
+    }
+
+    @Override
+    public double[] getBoxes() {
+        return data;
+    }
+
+    /**
+     * @return {@code true} if no collision boxes were found.
+     */
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Removes all boxes while keeping the backing array for reuse.
+     */
+    public void clear() {
+        count = 0;
+    }
+}
@@ -1,116 +1,50 @@
 package net.blosson.lflagger.physics;
 
-import net.minecraft.entity.player.PlayerEntity;
+import net.blosson.lflagger.data.PlayerFrame;
+import net.blosson.lflagger.physics.kernel.MotionState;
+import net.blosson.lflagger.physics.kernel.SweepCollision;
+import net.blosson.lflagger.profiling.LatencyHistogram;
+import net.blosson.lflagger.profiling.Profiler;
 import net.minecraft.util.math.Box;
-import net.minecraft.util.math.Vec3d;
-import net.minecraft.util.shape.VoxelShape;
-import net.minecraft.world.World;
-
-import java.util.List;
-import java.util.stream.StreamSupport;
 
 public class Collisions {
 
-    public static Vec3d collide(PlayerEntity player, Vec3d velocity) {
-        World world = player.getEntityWorld();
-        Box playerBox = player.getBoundingBox();
-        List<Box> collisionBoxes = StreamSupport.stream(world.getCollisions(player, playerBox.stretch(velocity)).spliterator(), false)
-                .flatMap(voxelShape -> voxelShape.getBoundingBoxes().stream())
-                .toList();
-
-        if (collisionBoxes.isEmpty()) {
-            return velocity;
-        }
-
-        // Iterative collision logic
-        double dx = velocity.getX();
-        double dy = velocity.getY();
-        double dz = velocity.getZ();
-
-        // Y-axis collision
-        for (Box box : collisionBoxes) {
-            dy = calculateMaxY(playerBox, box, dy);
-        }
-        playerBox = playerBox.offset(0, dy, 0);
-
-        // X-axis collision
-        for (Box box : collisionBoxes) {
-            dx = calculateMaxX(playerBox, box, dx);
-        }
-        playerBox = playerBox.offset(dx, 0, 0);
-
-        // Z-axis collision
-        for (Box box : collisionBoxes) {
-            dz = calculateMaxZ(playerBox, box, dz);
-        }
-
-        // Step-up logic
-        boolean collidedHorizontally = velocity.getX() != dx || velocity.getZ() != dz;
-        boolean canStep = player.isOnGround();
-
-        if (collidedHorizontally && canStep) {
-            Vec3d originalVelocity = new Vec3d(dx, dy, dz);
-            Box stepBox = player.getBoundingBox();
-            double stepDx = velocity.getX();
-            double stepDy = player.getStepHeight();
-            double stepDz = velocity.getZ();
-
-            for (Box box : collisionBoxes) {
-                stepDy = calculateMaxY(stepBox, box, stepDy);
-            }
-            stepBox = stepBox.offset(0, stepDy, 0);
-
-            for (Box box : collisionBoxes) {
-                stepDx = calculateMaxX(stepBox, box, stepDx);
-            }
-            stepBox = stepBox.offset(stepDx, 0, 0);
-
-            for (Box box : collisionBoxes) {
-                stepDz = calculateMaxZ(stepBox, box, stepDz);
-            }
-
-            Vec3d stepUpVelocity = new Vec3d(stepDx, stepDy, stepDz);
-            if (stepUpVelocity.horizontalLengthSquared() > originalVelocity.horizontalLengthSquared()) {
-                for (Box box : collisionBoxes) {
-                    stepUpVelocity = new Vec3d(stepUpVelocity.x, calculateMaxY(stepBox, box, stepUpVelocity.y), stepUpVelocity.z);
-                }
-                return stepUpVelocity;
-            }
-        }
-
-        return new Vec3d(dx, dy, dz);
-    }
-
-    private static double calculateMaxY(Box playerBox, Box blockBox, double dy) {
-        if (playerBox.maxX > blockBox.minX && playerBox.minX < blockBox.maxX && playerBox.maxZ > blockBox.minZ && playerBox.minZ < blockBox.maxZ) {
-            if (dy > 0.0 && playerBox.maxY <= blockBox.minY) {
-                dy = Math.min(blockBox.minY - playerBox.maxY, dy);
-            } else if (dy < 0.0 && playerBox.minY >= blockBox.maxY) {
-                dy = Math.max(blockBox.maxY - playerBox.minY, dy);
-            }
-        }
-        return dy;
-    }
-
-    private static double calculateMaxX(Box playerBox, Box blockBox, double dx) {
-        if (playerBox.maxY > blockBox.minY && playerBox.minY < blockBox.maxY && playerBox.maxZ > blockBox.minZ && playerBox.minZ < blockBox.maxZ) {
-            if (dx > 0.0 && playerBox.maxX <= blockBox.minX) {
-                dx = Math.min(blockBox.minX - playerBox.maxX, dx);
-            } else if (dx < 0.0 && playerBox.minX >= blockBox.maxX) {
-                dx = Math.max(blockBox.maxX - playerBox.minX, dx);
-            }
-        }
-        return dx;
+    private static final LatencyHistogram TIMER = Profiler.timer("collisions.collide");
+
+    /**
+     * Clips the velocity held in {@code motion} against a pre-gathered set of collision boxes.
+     * <p>
+     * The boxes are expected to come from {@link CollisionBoxes#gather}, called once per player per
+     * tick with bounds that cover every candidate velocity, so no world query happens here. The player
+     * box is placed at the position held in {@code motion}, which is normally the player's own position
+     * but differs when replaying past ticks. The sweep itself is done by the physics kernel; this only
+     * unpacks the frame. Only the velocity of {@code motion} is modified; the position is left for the
+     * caller to advance.
+     *
+     * @param frame The player frame whose bounding box and step height are used.
+     * @param collisionBoxes The broadphase boxes around the player.
+     * @param motion The simulated state whose velocity is collided in place.
+     */
+    public static void collide(PlayerFrame frame, CollisionBoxes collisionBoxes, MotionState motion) {
+        collide(frame, collisionBoxes, motion, frame.onGround);
     }
 
-    private static double calculateMaxZ(Box playerBox, Box blockBox, double dz) {
-        if (playerBox.maxY > blockBox.minY && playerBox.minY < blockBox.maxY && playerBox.maxX > blockBox.minX && playerBox.minX < blockBox.maxX) {
-            if (dz > 0.0 && playerBox.maxZ <= blockBox.minZ) {
-                dz = Math.min(blockBox.minZ - playerBox.maxZ, dz);
-            } else if (dz < 0.0 && playerBox.minZ >= blockBox.maxZ) {
-                dz = Math.max(blockBox.maxZ - playerBox.minZ, dz);
-            }
-        }
-        return dz;
+    /**
+     * Like {@link #collide(PlayerFrame, CollisionBoxes, MotionState)}, for a simulated tick that starts on or
+     * off the ground independently of the frame, e.g. the later ticks of a simulation over several ticks.
+     *
+     * @param onGround Whether the simulated player is on the ground, which allows stepping up.
+     */
+    public static void collide(PlayerFrame frame, CollisionBoxes collisionBoxes, MotionState motion, boolean onGround) {
+        long start = Profiler.start();
+        Box playerBox = frame.boundingBox;
+        double offsetX = motion.x - frame.getX();
+        double offsetY = motion.y - frame.getY();
+        double offsetZ = motion.z - frame.getZ();
+        SweepCollision.collide(
+                playerBox.minX + offsetX, playerBox.minY + offsetY, playerBox.minZ + offsetZ,
+                playerBox.maxX + offsetX, playerBox.maxY + offsetY, playerBox.maxZ + offsetZ,
+                frame.stepHeight, onGround, collisionBoxes, motion);
+        Profiler.stop(TIMER, start);
     }
-}
\ No newline at end of file
+}
@@ -1,9 +1,11 @@
 package net.blosson.lflagger.physics;
 
+import net.blosson.lflagger.data.EnvironmentSnapshot;
 import net.blosson.lflagger.data.PlayerData;
+import net.blosson.lflagger.data.PlayerFrame;
 import net.blosson.lflagger.data.PlayerState;
 import net.blosson.lflagger.manager.UncertaintyManager;
-import net.minecraft.entity.player.PlayerEntity;
+import net.blosson.lflagger.profiling.Profiler;
 import net.minecraft.util.math.Vec3d;
 
 public class MovementSimulator {
@@ -12,17 +14,20 @@ public class MovementSimulator {
     private final PredictionEngineWater waterEngine = new PredictionEngineWater();
     private final PredictionEngineLava lavaEngine = new PredictionEngineLava();
 
-    public PredictionResult simulate(PlayerEntity player, PlayerState state) {
+    public PredictionResult simulate(PlayerFrame frame, PlayerState state) {
         UncertaintyManager uncertaintyManager = UncertaintyManager.getInstance();
-        PredictionEngine engine = selectEngine(player);
-        return engine.guessBestMovement(player, state);
+        PredictionEngine engine = selectEngine(state.environment);
+        long start = Profiler.start();
+        PredictionResult result = engine.guessBestMovement(frame, state);
+        Profiler.stop(engine.timer, start);
+        return result;
     }
 
-    private PredictionEngine selectEngine(PlayerEntity player) {
-        if (player.isInLava()) {
+    private PredictionEngine selectEngine(EnvironmentSnapshot environment) {
+        if (environment.inLava) {
             return lavaEngine;
         }
-        if (player.isSubmergedInWater()) {
+        if (environment.inWater) {
             return waterEngine;
         }
         return normalEngine;
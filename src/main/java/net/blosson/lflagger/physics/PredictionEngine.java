@@ -1,11 +1,16 @@
 package net.blosson.lflagger.physics;
 
 import net.blosson.lflagger.data.PlayerData;
+import net.blosson.lflagger.data.PlayerFrame;
 import net.blosson.lflagger.data.PlayerState;
-import net.minecraft.entity.player.PlayerEntity;
+import net.blosson.lflagger.profiling.LatencyHistogram;
+import net.blosson.lflagger.profiling.Profiler;
 
 public abstract class PredictionEngine {
 
+    /** The histogram {@link MovementSimulator} records this engine's searches into, shared by all instances. */
+    final LatencyHistogram timer = Profiler.timer("engine." + getClass().getSimpleName());
+
     /**
      * Predicts the player's next position based on their movement history and current state.
      *
@@ -14,7 +19,7 @@ public abstract class PredictionEngine {
      */
     public abstract PredictionResult predictNextPosition(PlayerData data);
 
-    public PredictionResult guessBestMovement(PlayerEntity player, PlayerState state) {
+    public PredictionResult guessBestMovement(PlayerFrame frame, PlayerState state) {
         return predictNextPosition(state.playerData);
     }
 }
\ No newline at end of file
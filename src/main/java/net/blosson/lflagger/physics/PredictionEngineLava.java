@@ -1,13 +1,13 @@
 package net.blosson.lflagger.physics;
 
 import net.blosson.lflagger.data.PlayerData;
+import net.blosson.lflagger.data.PositionHistory;
+import net.blosson.lflagger.physics.kernel.FluidMovement;
+import net.blosson.lflagger.physics.kernel.MotionState;
 import net.minecraft.util.math.Vec3d;
 
 public class PredictionEngineLava extends PredictionEngine {
 
-    private static final double LAVA_DRAG = 0.5;
-    private static final double LAVA_BUOYANCY = 0.04;
-
     @Override
     public PredictionResult predictNextPosition(PlayerData data) {
         if (data.positionHistory.size() < 2) {
@@ -15,18 +15,18 @@ public class PredictionEngineLava extends PredictionEngine {
         }
 
         // Apply lava physics
-        long timeDelta = data.clientTimestamp - data.positionHistory.getLast().timestamp();
+        PositionHistory history = data.positionHistory;
+        long timeDelta = data.clientTimestamp - history.getTimestamp(0);
         if (timeDelta == 0) return new PredictionResult(data.position, 1.0);
-        Vec3d velocity = data.position.subtract(data.positionHistory.getLast().position()).multiply(1000.0 / timeDelta);
-
-        double dx = velocity.getX() * LAVA_DRAG;
-        double dy = velocity.getY() * LAVA_DRAG;
-        double dz = velocity.getZ() * LAVA_DRAG;
-        dy += LAVA_BUOYANCY;
+        double scale = 1000.0 / timeDelta;
 
-        Vec3d newVelocity = new Vec3d(dx, dy, dz);
-        Vec3d predictedPosition = data.position.add(newVelocity.multiply(0.05)); // Assume 50ms tick time
+        MotionState motion = new MotionState();
+        motion.set(data.position.x, data.position.y, data.position.z,
+                (data.position.x - history.getX(0)) * scale,
+                (data.position.y - history.getY(0)) * scale,
+                (data.position.z - history.getZ(0)) * scale);
+        FluidMovement.predict(motion, FluidMovement.LAVA_DRAG, FluidMovement.LAVA_BUOYANCY);
 
-        return new PredictionResult(predictedPosition, 0.0);
+        return new PredictionResult(new Vec3d(motion.x, motion.y, motion.z), 0.0);
     }
-}
\ No newline at end of file
+}
@@ -1,22 +1,58 @@
 package net.blosson.lflagger.physics;
 
+import net.blosson.lflagger.config.ConfigCache;
+import net.blosson.lflagger.data.EnvironmentSnapshot;
 import net.blosson.lflagger.data.PlayerData;
+import net.blosson.lflagger.data.PlayerFrame;
 import net.blosson.lflagger.data.PlayerState;
-import net.minecraft.entity.effect.StatusEffects;
-import net.minecraft.entity.player.PlayerEntity;
+import net.blosson.lflagger.data.SimulationHistory;
+import net.blosson.lflagger.physics.kernel.CandidateBatch;
+import net.blosson.lflagger.physics.kernel.MotionState;
+import net.blosson.lflagger.physics.kernel.NormalMovement;
+import net.blosson.lflagger.physics.kernel.PlayerInput;
 import net.minecraft.util.math.Vec3d;
-import net.minecraft.block.Blocks;
-import net.minecraft.util.math.BlockPos;
-import net.minecraft.block.SoulSandBlock;
-import net.minecraft.block.SlimeBlock;
-import net.minecraft.block.CobwebBlock;
-import net.blosson.lflagger.physics.PlayerInput;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 public class PredictionEngineNormal extends PredictionEngine {
 
+    /** Every input combination the search tries. They never change, so they are built only once. */
+    private static final PlayerInput[] POSSIBLE_INPUTS = generatePossibleInputs();
+    /**
+     * A candidate ending closer than this to the observed position is treated as an exact match and ends the
+     * search. Servers send positions in steps of 1/4096 of a block, so an exact prediction can still be off
+     * by about that much, while different inputs end at least a hundredth of a block apart.
+     */
+    public static final double EXACT_MATCH_EPSILON = 1.0E-3;
+    /** The longest gap between two updates that is fitted tick by tick. Longer gaps start over from the observed delta. */
+    private static final int MAX_GAP_TICKS = 10;
+    /**
+     * How far around the path between two updates collision boxes are gathered for a fit over several ticks.
+     * A candidate that strays further than this ends too far from the observed position to be chosen anyway.
+     */
+    private static final double REFIT_MARGIN = 1.0;
+
+    /** Whether candidates are evaluated in one batched pass. Shared by all engines, as the cache is thread-safe. */
+    private static final ConfigCache<Boolean> batched =
+            new ConfigCache<>(config -> config.getPerformance().batchedCandidateEvaluation);
+
+    // Scratch state reused for every candidate so the search itself does not allocate. An engine instance
+    // must therefore only be used by one thread at a time.
+    private final MotionState motion = new MotionState();
+    private final CollisionBoxes collisionBoxes = new CollisionBoxes();
+    /** Pre-collision velocity and distance of every candidate, indexed like {@link #POSSIBLE_INPUTS}. */
+    private final CandidateBatch batch = new CandidateBatch(POSSIBLE_INPUTS);
+
+    // Search statistics, used to confirm how often the warm start avoids a full search. They are shared by
+    // all engine instances, since checks run on several worker threads that each own an engine.
+    private static final LongAdder searches = new LongAdder();
+    private static final LongAdder warmStartHits = new LongAdder();
+    private static final LongAdder candidatesEvaluated = new LongAdder();
+    private static final LongAdder refits = new LongAdder();
+    private static final LongAdder refittedTicks = new LongAdder();
+
     @Override
     public PredictionResult predictNextPosition(PlayerData data) {
         // This method is not used by the MovementCheck, but it must be implemented.
@@ -24,93 +60,292 @@ public class PredictionEngineNormal extends PredictionEngine {
     }
 
     @Override
-    public PredictionResult guessBestMovement(PlayerEntity player, PlayerState state) {
-        List<PlayerInput> possibleInputs = generatePossibleInputs(player, state);
-        Vec3d bestPredictedPosition = player.getEntityPos();
-        double minDistance = Double.MAX_VALUE;
-
-        for (PlayerInput input : possibleInputs) {
-            Vec3d predictedPosition = simulateTick(player, state, input);
-            double distance = predictedPosition.distanceTo(player.getEntityPos());
-            if (distance < minDistance) {
-                minDistance = distance;
-                bestPredictedPosition = predictedPosition;
+    public PredictionResult guessBestMovement(PlayerFrame frame, PlayerState state) {
+        Vec3d position = frame.position;
+        long tick = frame.worldTime;
+        SimulationHistory history = state.simulationHistory;
+
+        // Every candidate starts from where the player was at the previous update, with the velocity they
+        // had at the end of it, and is judged by how close it ends to where they are now. Without a simulated
+        // previous update, the observed delta stands in for that velocity.
+        Vec3d start = frame.lastPosition;
+        Vec3d velocity = frame.calculatedVelocity;
+        double velocityX = velocity.x;
+        double velocityY = velocity.y;
+        double velocityZ = velocity.z;
+        int gap = 1;
+        boolean continued = false;
+        long latestTick = history.getLatestTick();
+        if (history.load(latestTick, motion) && motion.x == start.x && motion.y == start.y && motion.z == start.z) {
+            long ticks = tick - latestTick;
+            if (ticks >= 1 && ticks <= MAX_GAP_TICKS) {
+                gap = (int) ticks;
+                continued = true;
+                velocityX = motion.vx;
+                velocityY = motion.vy;
+                velocityZ = motion.vz;
             }
         }
 
-        return new PredictionResult(bestPredictedPosition, minDistance);
-    }
-
-    private Vec3d simulateTick(PlayerEntity player, PlayerState state, PlayerInput input) {
-        Vec3d velocity = state.getCalculatedVelocity();
-
-        // Apply friction
-        BlockPos groundBlockPos = BlockPos.ofFloored(player.getX(), player.getY() - 0.1, player.getZ());
-        boolean onIce = player.getEntityWorld().getBlockState(groundBlockPos).isOf(Blocks.ICE) ||
-                        player.getEntityWorld().getBlockState(groundBlockPos).isOf(Blocks.PACKED_ICE) ||
-                        player.getEntityWorld().getBlockState(groundBlockPos).isOf(Blocks.FROSTED_ICE);
-        double friction = onIce ? PhysicsConstants.ICE_FRICTION : 0.91;
-
-        if (player.getEntityWorld().getBlockState(groundBlockPos).getBlock() instanceof SoulSandBlock) {
-            friction *= PhysicsConstants.SOUL_SAND_FRICTION_MULTIPLIER;
-        }
-        if (player.getEntityWorld().getBlockState(groundBlockPos).getBlock() instanceof SlimeBlock) {
-            friction = PhysicsConstants.SLIME_BLOCK_FRICTION;
+        if (gap > 1) {
+            // The update spans several ticks, e.g. because the server only sends movement every other tick.
+            PredictionResult result = refit(frame, state, start, velocityX, velocityY, velocityZ, gap);
+            if (result != null) {
+                return result;
+            }
+            // The stretch leaves the world snapshot, so candidates would pass through walls that were not
+            // captured. Judge the update as one step with the per-tick average instead, like a longer gap.
+            continued = false;
+            velocityX = velocity.x;
+            velocityY = velocity.y;
+            velocityZ = velocity.z;
         }
 
+        // First pass: everything up to collision. This is cheap arithmetic, and it tells us how far
+        // any candidate can reach, so the collision boxes only need to be gathered once for all of them.
+        if (batched.get()) {
+            batch.evaluate(start.x, start.y, start.z, velocityX, velocityY, velocityZ,
+                    position.x, position.y, position.z, state.environment, frame.sprinting, frame.onGround, frame.yaw);
+        } else {
+            for (int i = 0; i < POSSIBLE_INPUTS.length; i++) {
+                motion.set(start.x, start.y, start.z, velocityX, velocityY, velocityZ);
+                NormalMovement.applyInput(state.environment, POSSIBLE_INPUTS[i], frame.sprinting, frame.onGround, frame.yaw, motion);
+                batch.vx[i] = motion.vx;
+                batch.vy[i] = motion.vy;
+                batch.vz[i] = motion.vz;
+                motion.applyVelocity();
+                batch.distance[i] = motion.distanceTo(position.x, position.y, position.z);
+            }
+        }
 
-        velocity = new Vec3d(velocity.x * friction, velocity.y, velocity.z * friction);
+        double minDx = Double.POSITIVE_INFINITY, maxDx = Double.NEGATIVE_INFINITY;
+        double minDy = Double.POSITIVE_INFINITY, maxDy = Double.NEGATIVE_INFINITY;
+        double minDz = Double.POSITIVE_INFINITY, maxDz = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < batch.size; i++) {
+            minDx = Math.min(minDx, batch.vx[i]);
+            maxDx = Math.max(maxDx, batch.vx[i]);
+            minDy = Math.min(minDy, batch.vy[i]);
+            maxDy = Math.max(maxDy, batch.vy[i]);
+            minDz = Math.min(minDz, batch.vz[i]);
+            maxDz = Math.max(maxDz, batch.vz[i]);
+        }
+        // The boxes are gathered relative to the player's current box, which the candidates start behind.
+        double startX = start.x - position.x;
+        double startY = start.y - position.y;
+        double startZ = start.z - position.z;
+        collisionBoxes.gather(frame,
+                startX + Math.min(0.0, minDx), startX + Math.max(0.0, maxDx),
+                startY + Math.min(0.0, minDy), startY + Math.max(0.0, maxDy),
+                startZ + Math.min(0.0, minDz), startZ + Math.max(0.0, maxDz));
 
+        // Second pass: collide candidates against the shared broadphase set. Inputs are sticky from
+        // one tick to the next, so last tick's best input is tried first, and the search stops as
+        // soon as any candidate ends within EXACT_MATCH_EPSILON of the observed position.
+        int warmStartIndex = state.lastBestInputIndex;
+        int bestIndex = warmStartIndex;
+        double minDistance = evaluateCandidate(frame, start, position, warmStartIndex);
+        double bestX = motion.x;
+        double bestY = motion.y;
+        double bestZ = motion.z;
+        int evaluated = 1;
 
-        // Apply input
-        float speed = player.getMovementSpeed();
-        if (input.sneaking) {
-            speed *= 0.3f;
-        }
-        if (player.isSprinting()) {
-            speed *= PhysicsConstants.SPRINTING_MULTIPLIER;
-        }
-        if (player.hasStatusEffect(StatusEffects.SPEED)) {
-            speed *= 1.0 + (PhysicsConstants.SPEED_EFFECT_MULTIPLIER * (player.getStatusEffect(StatusEffects.SPEED).getAmplifier() + 1));
+        if (minDistance < EXACT_MATCH_EPSILON) {
+            warmStartHits.increment();
+        } else {
+            for (int i = 0; i < POSSIBLE_INPUTS.length; i++) {
+                if (i == warmStartIndex) {
+                    continue;
+                }
+                double distance = evaluateCandidate(frame, start, position, i);
+                evaluated++;
+                if (distance < minDistance) {
+                    minDistance = distance;
+                    bestIndex = i;
+                    bestX = motion.x;
+                    bestY = motion.y;
+                    bestZ = motion.z;
+                    if (distance < EXACT_MATCH_EPSILON) {
+                        break;
+                    }
+                }
+            }
         }
-        if (player.hasStatusEffect(StatusEffects.SLOWNESS)) {
-            speed *= 1.0 - (PhysicsConstants.SLOWNESS_EFFECT_MULTIPLIER * (player.getStatusEffect(StatusEffects.SLOWNESS).getAmplifier() + 1));
+
+        searches.increment();
+        candidatesEvaluated.add(evaluated);
+        state.lastBestInputIndex = bestIndex;
+        // Next tick continues from the observed position and the observed movement, rather than the best
+        // candidate's, so a prediction that is slightly off does not carry its error forward. Only a delta
+        // known to span one tick is used as is; otherwise it is the per-tick average.
+        if (continued) {
+            motion.set(position.x, position.y, position.z, position.x - start.x, position.y - start.y, position.z - start.z);
+        } else {
+            motion.set(position.x, position.y, position.z, velocity.x, velocity.y, velocity.z);
         }
+        history.record(tick, motion);
 
-        Vec3d inputVector = new Vec3d(input.strafe, 0, input.forward).multiply(speed);
-        velocity = velocity.add(inputVector.rotateY(-player.getYaw() * ((float)Math.PI / 180F)));
+        return new PredictionResult(new Vec3d(bestX, bestY, bestZ), minDistance);
+    }
 
+    /**
+     * Fits one input to an update that spans several ticks. Each candidate is held for the whole gap and
+     * simulated tick by tick, and the one ending closest to the observed position is chosen. The ticks in
+     * between are recorded as simulated with that input.
+     *
+     * @param start The position at the previous update.
+     * @param gap The number of ticks since the previous update, at least 2.
+     * @return The fitted result, or {@code null} if the world snapshot does not cover the stretch between
+     *         the two updates. Nothing is recorded in that case.
+     */
+    private PredictionResult refit(PlayerFrame frame, PlayerState state, Vec3d start,
+                                   double velocityX, double velocityY, double velocityZ, int gap) {
+        Vec3d position = frame.position;
+        EnvironmentSnapshot environment = state.environment;
 
-        // Apply gravity
-        velocity = velocity.subtract(0, PhysicsConstants.GRAVITY, 0);
+        // The paths diverge after the first tick, so the boxes are gathered once around the whole stretch
+        // between the two positions instead of per candidate.
+        double startX = start.x - position.x;
+        double startY = start.y - position.y;
+        double startZ = start.z - position.z;
+        boolean covered = collisionBoxes.gather(frame,
+                Math.min(startX, 0.0) - REFIT_MARGIN, Math.max(startX, 0.0) + REFIT_MARGIN,
+                Math.min(startY, 0.0) - REFIT_MARGIN, Math.max(startY, 0.0) + REFIT_MARGIN,
+                Math.min(startZ, 0.0) - REFIT_MARGIN, Math.max(startZ, 0.0) + REFIT_MARGIN);
+        if (!covered) {
+            return null;
+        }
 
-        if (player.getEntityWorld().getBlockState(new BlockPos((int)player.getX(), (int)player.getY(), (int)player.getZ())).getBlock() instanceof CobwebBlock) {
-            velocity = velocity.multiply(PhysicsConstants.COBWEB_FRICTION);
+        int warmStartIndex = state.lastBestInputIndex;
+        int bestIndex = warmStartIndex;
+        double minDistance = simulateGap(frame, environment, start, velocityX, velocityY, velocityZ, gap, warmStartIndex, null, 0L);
+        int evaluated = 1;
+        if (minDistance < EXACT_MATCH_EPSILON) {
+            warmStartHits.increment();
+        } else {
+            for (int i = 0; i < POSSIBLE_INPUTS.length; i++) {
+                if (i == warmStartIndex) {
+                    continue;
+                }
+                double distance = simulateGap(frame, environment, start, velocityX, velocityY, velocityZ, gap, i, null, 0L);
+                evaluated++;
+                if (distance < minDistance) {
+                    minDistance = distance;
+                    bestIndex = i;
+                    if (distance < EXACT_MATCH_EPSILON) {
+                        break;
+                    }
+                }
+            }
         }
 
+        // Simulate the chosen input once more to record the ticks in between.
+        simulateGap(frame, environment, start, velocityX, velocityY, velocityZ, gap, bestIndex,
+                state.simulationHistory, frame.worldTime - gap);
+        Vec3d predicted = new Vec3d(motion.x, motion.y, motion.z);
+        // Like a single tick, the next update continues from the observed position. The velocity is corrected
+        // by the remaining error spread over the gap, so it follows the observed movement as well.
+        motion.set(position.x, position.y, position.z,
+                motion.vx + (position.x - predicted.x) / gap,
+                motion.vy + (position.y - predicted.y) / gap,
+                motion.vz + (position.z - predicted.z) / gap);
+        state.simulationHistory.record(frame.worldTime, motion);
 
-        // Apply air drag
-        velocity = velocity.multiply(1.0, PhysicsConstants.AIR_DRAG, 1.0);
+        searches.increment();
+        candidatesEvaluated.add(evaluated);
+        refits.increment();
+        refittedTicks.add(gap);
+        state.lastBestInputIndex = bestIndex;
+        return new PredictionResult(predicted, minDistance);
+    }
 
-        // Apply status effects
-        if (input.jumping && player.isOnGround()) {
-             velocity = velocity.add(0, PhysicsConstants.JUMP_VERTICAL_SPEED, 0);
-        }
-        if (player.hasStatusEffect(StatusEffects.JUMP_BOOST)) {
-            velocity = velocity.add(0, (player.getStatusEffect(StatusEffects.JUMP_BOOST).getAmplifier() + 1) * PhysicsConstants.JUMP_BOOST_MULTIPLIER, 0);
+    /**
+     * Simulates one input held for several ticks, including collision with the gathered boxes, and leaves
+     * the final state in {@link #motion}.
+     *
+     * @param history Receives every tick but the last, or {@code null} to record nothing.
+     * @param firstTick The tick the simulation starts from, used to number the recorded ticks.
+     * @return The distance between the final position and the observed position.
+     */
+    private double simulateGap(PlayerFrame frame, EnvironmentSnapshot environment, Vec3d start,
+                               double velocityX, double velocityY, double velocityZ, int gap, int inputIndex,
+                               SimulationHistory history, long firstTick) {
+        motion.set(start.x, start.y, start.z, velocityX, velocityY, velocityZ);
+        boolean onGround = frame.onGround;
+        for (int i = 1; i <= gap; i++) {
+            NormalMovement.applyInput(environment, POSSIBLE_INPUTS[inputIndex], frame.sprinting, onGround, frame.yaw, motion);
+            double fallVelocity = motion.vy;
+            Collisions.collide(frame, collisionBoxes, motion, onGround);
+            // Landing stops the fall, and only a player on the ground can jump again next tick.
+            onGround = fallVelocity < 0.0 && motion.vy != fallVelocity;
+            motion.applyVelocity();
+            if (history != null && i < gap) {
+                history.record(firstTick + i, motion);
+            }
         }
-        if (player.hasStatusEffect(StatusEffects.LEVITATION)) {
-            velocity = new Vec3d(velocity.x, (PhysicsConstants.LEVITATION_MULTIPLIER * (player.getStatusEffect(StatusEffects.LEVITATION).getAmplifier() + 1) - velocity.y) * PhysicsConstants.LEVITATION_DRAG, velocity.z);
+        return motion.distanceTo(frame.position.x, frame.position.y, frame.position.z);
+    }
+
+    /**
+     * Collides the pre-computed candidate at {@code index} and advances it from the start of the tick to its
+     * predicted position, which is left in {@link #motion}.
+     *
+     * @return The distance between the candidate's predicted position and the observed position.
+     */
+    private double evaluateCandidate(PlayerFrame frame, Vec3d start, Vec3d position, int index) {
+        motion.set(start.x, start.y, start.z, batch.vx[index], batch.vy[index], batch.vz[index]);
+        if (collisionBoxes.isEmpty()) {
+            // Nothing to collide with, so the distance from the first pass is already final.
+            motion.applyVelocity();
+            return batch.distance[index];
         }
+        Collisions.collide(frame, collisionBoxes, motion);
+        motion.applyVelocity();
+        return motion.distanceTo(position.x, position.y, position.z);
+    }
+
+    /**
+     * @return The fraction of searches that were satisfied by last tick's best input alone.
+     */
+    public static double getWarmStartHitRate() {
+        long total = searches.sum();
+        return total == 0 ? 0.0 : (double) warmStartHits.sum() / total;
+    }
 
+    /**
+     * @return The average number of candidates simulated per search, out of {@link #POSSIBLE_INPUTS}.
+     */
+    public static double getAverageCandidatesPerSearch() {
+        long total = searches.sum();
+        return total == 0 ? 0.0 : (double) candidatesEvaluated.sum() / total;
+    }
+
+    /**
+     * @return The number of updates that spanned several ticks and were fitted tick by tick.
+     */
+    public static long getRefits() {
+        return refits.sum();
+    }
 
-        // Collide with world
-        velocity = Collisions.collide(player, velocity);
+    /**
+     * @return The number of ticks covered by the updates counted in {@link #getRefits()}.
+     */
+    public static long getRefittedTicks() {
+        return refittedTicks.sum();
+    }
 
-        return player.getEntityPos().add(velocity);
+    /**
+     * Resets the search statistics reported by {@link #getWarmStartHitRate()} and
+     * {@link #getAverageCandidatesPerSearch()}.
+     */
+    public static void resetStatistics() {
+        searches.reset();
+        warmStartHits.reset();
+        candidatesEvaluated.reset();
+        refits.reset();
+        refittedTicks.reset();
     }
 
-    private List<PlayerInput> generatePossibleInputs(PlayerEntity player, PlayerState state) {
+    private static PlayerInput[] generatePossibleInputs() {
         List<PlayerInput> inputs = new ArrayList<>();
 
         inputs.add(new PlayerInput(0, 0, false, false)); // No input
@@ -135,6 +370,6 @@ public class PredictionEngineNormal extends PredictionEngine {
             inputs.add(new PlayerInput(input.forward, input.strafe, input.jumping, true));
         }
 
-        return inputs;
+        return inputs.toArray(new PlayerInput[0]);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,31 @@
+package net.blosson.lflagger.physics.kernel;
+
+/**
+ * A static set of axis-aligned collision boxes that {@link SweepCollision} can sweep a body against.
+ * <p>
+ * Boxes are exposed as one flat {@code double} array so the sweeps can run over primitives. Each box
+ * takes {@link #STRIDE} consecutive entries, in the order {@code minX, minY, minZ, maxX, maxY, maxZ}.
+ */
+public interface Collider {
+
+    /** The number of {@code double} entries used per box. */
+    int STRIDE = 6;
+
+    int MIN_X = 0;
+    int MIN_Y = 1;
+    int MIN_Z = 2;
+    int MAX_X = 3;
+    int MAX_Y = 4;
+    int MAX_Z = 5;
+
+    /**
+     * @return The number of boxes.
+     */
+    int getBoxCount();
+
+    /**
+     * @return The flattened boxes. Only the first {@code getBoxCount() * STRIDE} entries are valid,
+     *         and the array must not be modified.
+     */
+    double[] getBoxes();
+}
@@ -0,0 +1,35 @@
+package net.blosson.lflagger.physics.kernel;
+
+/**
+ * The fluid movement models of the water and lava prediction engines.
+ */
+public final class FluidMovement {
+
+    public static final double WATER_DRAG = 0.8;
+    public static final double WATER_BUOYANCY = 0.04;
+    public static final double LAVA_DRAG = 0.5;
+    public static final double LAVA_BUOYANCY = 0.04;
+
+    /** The length of a tick in seconds, used to turn the per-second velocity into a displacement. */
+    private static final double TICK_SECONDS = 0.05;
+
+    private FluidMovement() {}
+
+    /**
+     * Predicts the next position of a player moving through a fluid. The velocity of {@code motion}
+     * is expected in blocks per second; it is damped, pushed up by buoyancy and then applied for one tick.
+     *
+     * @param motion The state to advance in place.
+     * @param drag The fluid's drag factor, e.g. {@link #WATER_DRAG}.
+     * @param buoyancy The fluid's upward push, e.g. {@link #WATER_BUOYANCY}.
+     */
+    public static void predict(MotionState motion, double drag, double buoyancy) {
+        motion.vx = motion.vx * drag;
+        motion.vy = motion.vy * drag + buoyancy;
+        motion.vz = motion.vz * drag;
+
+        motion.x += motion.vx * TICK_SECONDS;
+        motion.y += motion.vy * TICK_SECONDS;
+        motion.z += motion.vz * TICK_SECONDS;
+    }
+}
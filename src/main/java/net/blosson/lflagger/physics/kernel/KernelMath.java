@@ -0,0 +1,29 @@
+package net.blosson.lflagger.physics.kernel;
+
+/**
+ * Trigonometry that matches the game's own lookup tables bit for bit.
+ * <p>
+ * The game does not use {@link Math#sin} for movement. It reads a 65536-entry {@code float} table,
+ * and predictions only line up exactly if the kernel does the same. Keeping a copy of the table here
+ * means the kernel does not need the game's {@code MathHelper}.
+ */
+public final class KernelMath {
+
+    private static final float[] SINE_TABLE = new float[65536];
+
+    static {
+        for (int i = 0; i < SINE_TABLE.length; i++) {
+            SINE_TABLE[i] = (float) Math.sin(i * Math.PI * 2.0 / 65536.0);
+        }
+    }
+
+    private KernelMath() {}
+
+    public static float sin(double value) {
+        return SINE_TABLE[(int) ((long) (value * 10430.378350470453) & 65535L)];
+    }
+
+    public static float cos(double value) {
+        return SINE_TABLE[(int) ((long) (value * 10430.378350470453 + 16384.0) & 65535L)];
+    }
+}
@@ -0,0 +1,50 @@
+package net.blosson.lflagger.physics.kernel;
+
+/**
+ * A mutable, primitive-only holder for a simulated position and velocity.
+ * <p>
+ * The prediction engines evaluate dozens of input candidates per player per tick. Keeping the
+ * intermediate state in plain {@code double} fields lets a single instance be reused for every
+ * candidate, so the candidate search itself does not allocate any {@code Vec3d} objects.
+ */
+public class MotionState {
+
+    public double x;
+    public double y;
+    public double z;
+
+    public double vx;
+    public double vy;
+    public double vz;
+
+    /**
+     * Re-initializes this state with a new position and velocity.
+     */
+    public void set(double x, double y, double z, double vx, double vy, double vz) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.vx = vx;
+        this.vy = vy;
+        this.vz = vz;
+    }
+
+    /**
+     * Moves the position by the current velocity, as done at the end of a movement tick.
+     */
+    public void applyVelocity() {
+        this.x += this.vx;
+        this.y += this.vy;
+        this.z += this.vz;
+    }
+
+    /**
+     * @return The Euclidean distance from this state's position to the given point.
+     */
+    public double distanceTo(double x, double y, double z) {
+        double dx = x - this.x;
+        double dy = y - this.y;
+        double dz = z - this.z;
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+}
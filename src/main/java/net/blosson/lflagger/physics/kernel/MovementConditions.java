@@ -0,0 +1,70 @@
+package net.blosson.lflagger.physics.kernel;
+
+import net.blosson.lflagger.physics.PhysicsConstants;
+
+/**
+ * The input-independent conditions a movement tick is simulated under: ground friction, cobwebs,
+ * fluids, status effects and the player's movement speed.
+ * <p>
+ * This is plain data with no ties to the game, so the kernel can be driven by any source. In the mod
+ * it is filled in by {@code EnvironmentSnapshot}, which reads the values from the player and the world.
+ */
+public class MovementConditions {
+
+    /** Sentinel amplifier stored for effects the player does not have. */
+    public static final int NO_EFFECT = -1;
+
+    /** The friction class of the block below the player, as used by the normal prediction engine. */
+    public enum GroundType {
+        NORMAL(0.91),
+        ICE(PhysicsConstants.ICE_FRICTION),
+        SOUL_SAND(0.91 * PhysicsConstants.SOUL_SAND_FRICTION_MULTIPLIER),
+        SLIME(PhysicsConstants.SLIME_BLOCK_FRICTION);
+
+        public final double friction;
+
+        GroundType(double friction) {
+            this.friction = friction;
+        }
+    }
+
+    /** Friction class of the block at {@code (x, y - 0.1, z)}. */
+    public GroundType groundType = GroundType.NORMAL;
+    /** Slipperiness of the block directly below the player's block position. */
+    public float groundSlipperiness = 0.6f;
+    /** Whether the player's feet are inside a cobweb. */
+    public boolean inCobweb;
+
+    public boolean inWater;
+    public boolean inLava;
+
+    // Effect amplifiers, or NO_EFFECT.
+    public int speedAmplifier = NO_EFFECT;
+    public int slownessAmplifier = NO_EFFECT;
+    public int jumpBoostAmplifier = NO_EFFECT;
+    public int levitationAmplifier = NO_EFFECT;
+
+    /** The player's current movement speed, including the sprint modifier. */
+    public float movementSpeed;
+    /** The value of the player's base movement speed attribute. */
+    public double movementSpeedAttribute;
+
+    /**
+     * Overwrites every value with those of another instance.
+     *
+     * @param other The conditions to copy.
+     */
+    public void copyFrom(MovementConditions other) {
+        this.groundType = other.groundType;
+        this.groundSlipperiness = other.groundSlipperiness;
+        this.inCobweb = other.inCobweb;
+        this.inWater = other.inWater;
+        this.inLava = other.inLava;
+        this.speedAmplifier = other.speedAmplifier;
+        this.slownessAmplifier = other.slownessAmplifier;
+        this.jumpBoostAmplifier = other.jumpBoostAmplifier;
+        this.levitationAmplifier = other.levitationAmplifier;
+        this.movementSpeed = other.movementSpeed;
+        this.movementSpeedAttribute = other.movementSpeedAttribute;
+    }
+}
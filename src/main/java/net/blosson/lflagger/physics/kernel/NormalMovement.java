@@ -0,0 +1,92 @@
+package net.blosson.lflagger.physics.kernel;
+
+import net.blosson.lflagger.physics.PhysicsConstants;
+
+/**
+ * One tick of normal (land/air) movement for a single input, stopping right before collision:
+ * friction, input acceleration, gravity, cobweb slowdown, air drag, jumping and status effects.
+ * <p>
+ * This is the scalar reference path. {@link CandidateBatch} performs the same operations in the
+ * same order for many inputs at once.
+ */
+public final class NormalMovement {
+
+    private NormalMovement() {}
+
+    /**
+     * Applies one tick of movement for the given input to the velocity of {@code motion}.
+     *
+     * @param conditions The input-independent conditions of the tick.
+     * @param input The simulated input.
+     * @param sprinting Whether the player is sprinting.
+     * @param onGround Whether the player is on the ground, which allows jumping.
+     * @param yaw The player's yaw in degrees.
+     * @param motion The state whose velocity is advanced in place.
+     */
+    public static void applyInput(MovementConditions conditions, PlayerInput input, boolean sprinting, boolean onGround,
+                                  float yaw, MotionState motion) {
+        // Apply friction
+        double friction = conditions.groundType.friction;
+        motion.vx *= friction;
+        motion.vz *= friction;
+
+
+        // Apply input
+        float speed = inputSpeed(conditions, input.sneaking, sprinting);
+
+        // Same math as Vec3d(strafe, 0, forward).multiply(speed).rotateY(-yaw), without the intermediate vectors.
+        double inputX = (double) input.strafe * speed;
+        double inputZ = (double) input.forward * speed;
+        float yawRadians = -yaw * ((float) Math.PI / 180F);
+        float cos = KernelMath.cos(yawRadians);
+        float sin = KernelMath.sin(yawRadians);
+        motion.vx += inputX * (double) cos + inputZ * (double) sin;
+        motion.vz += inputZ * (double) cos - inputX * (double) sin;
+
+
+        // Apply gravity
+        motion.vy -= PhysicsConstants.GRAVITY;
+
+        if (conditions.inCobweb) {
+            motion.vx *= PhysicsConstants.COBWEB_FRICTION;
+            motion.vy *= PhysicsConstants.COBWEB_FRICTION;
+            motion.vz *= PhysicsConstants.COBWEB_FRICTION;
+        }
+
+
+        // Apply air drag
+        motion.vy *= PhysicsConstants.AIR_DRAG;
+
+        // Apply status effects
+        if (input.jumping && onGround) {
+            motion.vy += PhysicsConstants.JUMP_VERTICAL_SPEED;
+        }
+        if (conditions.jumpBoostAmplifier != MovementConditions.NO_EFFECT) {
+            motion.vy += (conditions.jumpBoostAmplifier + 1) * PhysicsConstants.JUMP_BOOST_MULTIPLIER;
+        }
+        if (conditions.levitationAmplifier != MovementConditions.NO_EFFECT) {
+            motion.vy = (PhysicsConstants.LEVITATION_MULTIPLIER * (conditions.levitationAmplifier + 1) - motion.vy) * PhysicsConstants.LEVITATION_DRAG;
+        }
+    }
+
+    /**
+     * Computes the horizontal acceleration applied for a movement input. The steps are performed in
+     * {@code float} precision, exactly like the per-candidate simulation always has.
+     */
+    public static float inputSpeed(MovementConditions conditions, boolean sneaking, boolean sprinting) {
+        float speed = conditions.movementSpeed;
+        if (sneaking) {
+            speed *= 0.3f;
+        }
+        if (sprinting) {
+            speed *= PhysicsConstants.SPRINTING_MULTIPLIER;
+        }
+        if (conditions.speedAmplifier != MovementConditions.NO_EFFECT) {
+            speed *= 1.0 + (PhysicsConstants.SPEED_EFFECT_MULTIPLIER * (conditions.speedAmplifier + 1));
+        }
+        if (conditions.slownessAmplifier != MovementConditions.NO_EFFECT) {
+            speed *= 1.0 - (PhysicsConstants.SLOWNESS_EFFECT_MULTIPLIER * (conditions.slownessAmplifier + 1));
+        }
+        return speed;
+    }
+}
@@ -1,4 +1,4 @@
-package net.blosson.lflagger.physics;
+package net.blosson.lflagger.physics.kernel;
 
 public class PlayerInput {
     public float forward;
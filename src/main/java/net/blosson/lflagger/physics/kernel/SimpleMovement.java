@@ -0,0 +1,127 @@
+package net.blosson.lflagger.physics.kernel;
+
+/**
+ * The simplified single-input movement model used by the Fly, Speed and Strafe checks.
+ * <p>
+ * Unlike {@link NormalMovement}, this model scales gravity and displacement by a TPS factor to
+ * compensate for server lag, and it has its own water and lava variants. Collision is not applied.
+ */
+public final class SimpleMovement {
+
+    /** The base gravitational acceleration per tick. */
+    private static final double BASE_GRAVITY = 0.08;
+    /** The friction factor applied to velocity each tick when airborne. */
+    private static final double BASE_AIR_FRICTION = 0.9800000190734863D;
+    /** The multiplier applied to speed when sprinting. */
+    private static final float SPRINTING_MULTIPLIER = 1.3f;
+    /** The multiplier applied to ground friction. */
+    private static final float GROUND_FRICTION_MULTIPLIER = 0.91f;
+    private static final double WATER_FRICTION = 0.800000011920929D;
+    private static final double WATER_BUOYANCY = 0.02D;
+    private static final double LAVA_FRICTION = 0.5D;
+
+    private SimpleMovement() {}
+
+    /**
+     * Simulates one tick on land or in the air.
+     *
+     * @param conditions The input-independent conditions of the tick.
+     * @param motion The state to advance in place.
+     * @param baseSpeed The player's base movement speed attribute.
+     * @param onGround Whether the player is on the ground.
+     * @param sprinting Whether the player is sprinting.
+     * @param forwardInput The forward/backward input.
+     * @param strafeInput The left/right input.
+     * @param tpsFactor The TPS compensation factor.
+     */
+    public static void normal(MovementConditions conditions, MotionState motion, float baseSpeed, boolean onGround,
+                              boolean sprinting, float forwardInput, float strafeInput, double tpsFactor) {
+        // 1. Calculate ground friction, taking the actual block into account.
+        float slipperiness = conditions.groundSlipperiness;
+        float friction = onGround ? slipperiness * GROUND_FRICTION_MULTIPLIER : GROUND_FRICTION_MULTIPLIER;
+
+        // 2. Calculate the base travel vector from inputs, adjusted for status effects.
+        if (conditions.speedAmplifier != MovementConditions.NO_EFFECT) {
+            baseSpeed *= 1.0 + (0.2 * (conditions.speedAmplifier + 1));
+        }
+        if (conditions.slownessAmplifier != MovementConditions.NO_EFFECT) {
+            baseSpeed *= 1.0 - (0.15 * (conditions.slownessAmplifier + 1));
+        }
+        if (sprinting) {
+            baseSpeed *= SPRINTING_MULTIPLIER;
+        }
+
+        // Apply Jump Boost effect to vertical movement
+        if (conditions.jumpBoostAmplifier != MovementConditions.NO_EFFECT && !onGround) {
+            motion.vy += (conditions.jumpBoostAmplifier + 1) * 0.1;
+        }
+
+        double travelX = strafeInput;
+        double travelZ = forwardInput;
+        // Normalize to prevent diagonal movement from being faster.
+        double lengthSquared = travelX * travelX + travelZ * travelZ;
+        if (lengthSquared > 1.0) {
+            double length = Math.sqrt(lengthSquared);
+            travelX /= length;
+            travelZ /= length;
+        }
+        travelX *= baseSpeed;
+        travelZ *= baseSpeed;
+
+        // 3. Apply gravity if airborne. This is scaled by the TPS factor.
+        if (!onGround) {
+            motion.vy -= BASE_GRAVITY * tpsFactor;
+        }
+
+        // 4. Add the acceleration from player input to the current velocity.
+        motion.vx += travelX;
+        motion.vz += travelZ;
+
+        // 5. Apply end-of-tick friction.
+        motion.vx *= friction;
+        motion.vy *= BASE_AIR_FRICTION; // Vertical velocity has its own friction (air drag).
+        motion.vz *= friction;
+
+        // 6. Update the position. The velocity is scaled by the TPS factor to account for tick duration.
+        move(motion, tpsFactor);
+    }
+
+    /**
+     * Simulates one tick inside water.
+     */
+    public static void water(MotionState motion, double tpsFactor) {
+        // Add buoyancy force, pushing the player upwards.
+        motion.vy += WATER_BUOYANCY * tpsFactor;
+
+        // Apply water friction (drag), which is much higher than air friction.
+        motion.vx *= WATER_FRICTION;
+        motion.vy *= WATER_FRICTION;
+        motion.vz *= WATER_FRICTION;
+
+        // Apply gravity, which is counteracted by buoyancy.
+        motion.vy -= BASE_GRAVITY * tpsFactor;
+
+        move(motion, tpsFactor);
+    }
+
+    /**
+     * Simulates one tick inside lava.
+     */
+    public static void lava(MotionState motion, double tpsFactor) {
+        // Apply lava friction (drag). Lava is extremely viscous.
+        motion.vx *= LAVA_FRICTION;
+        motion.vy *= LAVA_FRICTION;
+        motion.vz *= LAVA_FRICTION;
+
+        // Apply gravity.
+        motion.vy -= BASE_GRAVITY * tpsFactor;
+
+        move(motion, tpsFactor);
+    }
+
+    private static void move(MotionState motion, double tpsFactor) {
+        motion.x += motion.vx * tpsFactor;
+        motion.y += motion.vy * tpsFactor;
+        motion.z += motion.vz * tpsFactor;
+    }
+}
@@ -0,0 +1,141 @@
+package net.blosson.lflagger.physics.kernel;
+
+import static net.blosson.lflagger.physics.kernel.Collider.MAX_X;
+import static net.blosson.lflagger.physics.kernel.Collider.MAX_Y;
+import static net.blosson.lflagger.physics.kernel.Collider.MAX_Z;
+import static net.blosson.lflagger.physics.kernel.Collider.MIN_X;
+import static net.blosson.lflagger.physics.kernel.Collider.MIN_Y;
+import static net.blosson.lflagger.physics.kernel.Collider.MIN_Z;
+import static net.blosson.lflagger.physics.kernel.Collider.STRIDE;
+
+/**
+ * The game's axis-by-axis collision sweep, including the step-up pass, over primitive boxes.
+ */
+public final class SweepCollision {
+
+    private SweepCollision() {}
+
+    /**
+     * Clips the velocity held in {@code motion} against the boxes of a collider.
+     * <p>
+     * The moving body is given as six primitive bounds instead of a box object, and is moved along
+     * each axis in turn, so the sweeps do not allocate. Only the velocity of {@code motion} is
+     * modified; the position is left for the caller to advance.
+     *
+     * @param bodyMinX The body's minimum X at the start of the tick. The other bounds follow the same pattern.
+     * @param stepHeight How high the body may step up onto a block when it hits one horizontally.
+     * @param canStep Whether stepping up is possible, i.e. the body started the tick on the ground.
+     * @param collider The boxes to collide with.
+     * @param motion The simulated state whose velocity is collided in place.
+     */
+    public static void collide(double bodyMinX, double bodyMinY, double bodyMinZ,
+                               double bodyMaxX, double bodyMaxY, double bodyMaxZ,
+                               double stepHeight, boolean canStep, Collider collider, MotionState motion) {
+        if (collider.getBoxCount() == 0) {
+            return;
+        }
+
+        double[] boxes = collider.getBoxes();
+        int end = collider.getBoxCount() * STRIDE;
+
+        // Iterative collision logic
+        double minX = bodyMinX, minY = bodyMinY, minZ = bodyMinZ;
+        double maxX = bodyMaxX, maxY = bodyMaxY, maxZ = bodyMaxZ;
+        double dx = motion.vx;
+        double dy = motion.vy;
+        double dz = motion.vz;
+
+        // Y-axis collision
+        for (int i = 0; i < end; i += STRIDE) {
+            dy = calculateMaxY(minX, minY, minZ, maxX, maxY, maxZ, boxes, i, dy);
+        }
+        minY += dy;
+        maxY += dy;
+
+        // X-axis collision
+        for (int i = 0; i < end; i += STRIDE) {
+            dx = calculateMaxX(minX, minY, minZ, maxX, maxY, maxZ, boxes, i, dx);
+        }
+        minX += dx;
+        maxX += dx;
+
+        // Z-axis collision
+        for (int i = 0; i < end; i += STRIDE) {
+            dz = calculateMaxZ(minX, minY, minZ, maxX, maxY, maxZ, boxes, i, dz);
+        }
+
+        // Step-up logic
+        boolean collidedHorizontally = motion.vx != dx || motion.vz != dz;
+
+        if (collidedHorizontally && canStep) {
+            double stepMinX = bodyMinX, stepMinY = bodyMinY, stepMinZ = bodyMinZ;
+            double stepMaxX = bodyMaxX, stepMaxY = bodyMaxY, stepMaxZ = bodyMaxZ;
+            double stepDx = motion.vx;
+            double stepDy = stepHeight;
+            double stepDz = motion.vz;
+
+            for (int i = 0; i < end; i += STRIDE) {
+                stepDy = calculateMaxY(stepMinX, stepMinY, stepMinZ, stepMaxX, stepMaxY, stepMaxZ, boxes, i, stepDy);
+            }
+            stepMinY += stepDy;
+            stepMaxY += stepDy;
+
+            for (int i = 0; i < end; i += STRIDE) {
+                stepDx = calculateMaxX(stepMinX, stepMinY, stepMinZ, stepMaxX, stepMaxY, stepMaxZ, boxes, i, stepDx);
+            }
+            stepMinX += stepDx;
+            stepMaxX += stepDx;
+
+            for (int i = 0; i < end; i += STRIDE) {
+                stepDz = calculateMaxZ(stepMinX, stepMinY, stepMinZ, stepMaxX, stepMaxY, stepMaxZ, boxes, i, stepDz);
+            }
+
+            if (stepDx * stepDx + stepDz * stepDz > dx * dx + dz * dz) {
+                for (int i = 0; i < end; i += STRIDE) {
+                    stepDy = calculateMaxY(stepMinX, stepMinY, stepMinZ, stepMaxX, stepMaxY, stepMaxZ, boxes, i, stepDy);
+                }
+                motion.vx = stepDx;
+                motion.vy = stepDy;
+                motion.vz = stepDz;
+                return;
+            }
+        }
+
+        motion.vx = dx;
+        motion.vy = dy;
+        motion.vz = dz;
+    }
+
+    private static double calculateMaxY(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, double[] boxes, int i, double dy) {
+        if (maxX > boxes[i + MIN_X] && minX < boxes[i + MAX_X] && maxZ > boxes[i + MIN_Z] && minZ < boxes[i + MAX_Z]) {
+            if (dy > 0.0 && maxY <= boxes[i + MIN_Y]) {
+                dy = Math.min(boxes[i + MIN_Y] - maxY, dy);
+            } else if (dy < 0.0 && minY >= boxes[i + MAX_Y]) {
+                dy = Math.max(boxes[i + MAX_Y] - minY, dy);
+            }
+        }
+        return dy;
+    }
+
+    private static double calculateMaxX(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, double[] boxes, int i, double dx) {
+        if (maxY > boxes[i + MIN_Y] && minY < boxes[i + MAX_Y] && maxZ > boxes[i + MIN_Z] && minZ < boxes[i + MAX_Z]) {
+            if (dx > 0.0 && maxX <= boxes[i + MIN_X]) {
+                dx = Math.min(boxes[i + MIN_X] - maxX, dx);
+            } else if (dx < 0.0 && minX >= boxes[i + MAX_X]) {
+                dx = Math.max(boxes[i + MAX_X] - minX, dx);
+            }
+        }
+        return dx;
+    }
+
+    private static double calculateMaxZ(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, double[] boxes, int i, double dz) {
+        if (maxY > boxes[i + MIN_Y] && minY < boxes[i + MAX_Y] && maxX > boxes[i + MIN_X] && minX < boxes[i + MAX_X]) {
+            if (dz > 0.0 && maxZ <= boxes[i + MIN_Z]) {
+                dz = Math.min(boxes[i + MIN_Z] - maxZ, dz);
+            } else if (dz < 0.0 && minZ >= boxes[i + MAX_Z]) {
+                dz = Math.max(boxes[i + MAX_Z] - minZ, dz);
+            }
+        }
+        return dz;
+    }
+}
@@ -0,0 +1,129 @@
+package net.blosson.lflagger.profiling;
+
+import net.blosson.lflagger.LFlagger;
+import net.blosson.lflagger.config.ConfigManager;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Collects latency histograms for the checks, the prediction engines and collision.
+ * <p>
+ * Timed code registers a named {@link LatencyHistogram} once, typically when it is constructed, and
+ * brackets its hot path with {@link #start()} and {@link #stop(LatencyHistogram, long)}. While profiling
+ * is off, {@code start()} returns 0 without reading the clock and {@code stop} returns right away, so the
+ * instrumentation costs a field read and a branch.
+ * <p>
+ * The enabled flag is a plain field. It is only written on the client thread, and the check workers see
+ * the new value from the next tick on, as handing a tick to the worker pool publishes it.
+ */
+public final class Profiler {
+
+    private static final List<LatencyHistogram> histograms = new ArrayList<>();
+    private static boolean enabled;
+
+    private Profiler() {}
+
+    /**
+     * @return The histogram with the given name, created on first use. Calling this again with the
+     *         same name returns the same histogram.
+     */
+    public static synchronized LatencyHistogram timer(String name) {
+        for (LatencyHistogram histogram : histograms) {
+            if (histogram.getName().equals(name)) {
+                return histogram;
+            }
+        }
+        LatencyHistogram histogram = new LatencyHistogram(name);
+        histograms.add(histogram);
+        return histogram;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    /**
+     * @return The current {@link System#nanoTime()}, or 0 if profiling is off.
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records the time elapsed since {@code start} into {@code histogram}, if profiling was on when the
+     * measurement started.
+     */
+    public static void stop(LatencyHistogram histogram, long start) {
+        if (start != 0L) {
+            histogram.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return A snapshot of all registered histograms, in registration order.
+     */
+    public static synchronized List<LatencyHistogram> getHistograms() {
+        return new ArrayList<>(histograms);
+    }
+
+    /**
+     * Clears every histogram.
+     */
+    public static synchronized void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Formats one line per histogram that has recorded anything, with the p50, p99 and maximum in microseconds.
+     */
+    public static List<String> formatSummary() {
+        List<String> lines = new ArrayList<>();
+        for (LatencyHistogram histogram : getHistograms()) {
+            long count = histogram.getCount();
+            if (count == 0) {
+                continue;
+            }
+            lines.add(String.format("%s: n=%d p50=%.1fus p99=%.1fus max=%.1fus", histogram.getName(), count,
+                    histogram.getValueAtPercentile(50.0) / 1000.0,
+                    histogram.getValueAtPercentile(99.0) / 1000.0,
+                    histogram.getMax() / 1000.0));
+        }
+        return lines;
+    }
+
+    /**
+     * Writes all histograms as CSV to {@code config/lflagger/stats}.
+     *
+     * @return The written file.
+     */
+    public static Path export() throws IOException {
+        Path directory = ConfigManager.getConfigDir().resolve("lflagger").resolve("stats");
+        Files.createDirectories(directory);
+        Path path = directory.resolve("latency-" + System.currentTimeMillis() + ".csv");
+        try (Writer writer = Files.newBufferedWriter(path)) {
+            writer.write("name,count,p50_us,p90_us,p99_us,p999_us,max_us\n");
+            for (LatencyHistogram histogram : getHistograms()) {
+                writer.write(String.format(Locale.ROOT, "%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f\n", histogram.getName(), histogram.getCount(),
+                        histogram.getValueAtPercentile(50.0) / 1000.0,
+                        histogram.getValueAtPercentile(90.0) / 1000.0,
+                        histogram.getValueAtPercentile(99.0) / 1000.0,
+                        histogram.getValueAtPercentile(99.9) / 1000.0,
+                        histogram.getMax() / 1000.0));
+            }
+        }
+        LFlagger.LOGGER.info("Exported latency statistics to {}", path);
+        return path;
+    }
+}
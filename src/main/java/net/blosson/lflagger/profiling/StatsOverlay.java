@@ -0,0 +1,42 @@
+package net.blosson.lflagger.profiling;
+
+import net.blosson.lflagger.config.ConfigManager;
+import net.fabricmc.fabric.api.client.rendering.v1.hud.HudElement;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.gui.DrawContext;
+import net.minecraft.client.render.RenderTickCounter;
+
+import java.util.List;
+
+/**
+ * Draws the {@link Profiler} summary in the top left corner of the screen while the
+ * {@code stats_overlay} setting is on.
+ * <p>
+ * Computing percentiles walks every histogram, so the text is only refreshed once per second and the
+ * cached lines are drawn on the frames in between.
+ */
+public class StatsOverlay implements HudElement {
+
+    private static final long REFRESH_INTERVAL_MS = 1000L;
+    private static final int LINE_HEIGHT = 10;
+    private static final int COLOR = 0xFFFFFFFF;
+
+    private List<String> lines = List.of();
+    private long lastRefresh;
+
+    @Override
+    public void render(DrawContext context, RenderTickCounter tickCounter) {
+        if (!ConfigManager.getInstance().getConfig().getPerformance().statsOverlay) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastRefresh >= REFRESH_INTERVAL_MS) {
+            lastRefresh = now;
+            lines = Profiler.isEnabled() ? Profiler.formatSummary() : List.of("LFlagger profiling is off");
+        }
+        MinecraftClient client = MinecraftClient.getInstance();
+        for (int i = 0; i < lines.size(); i++) {
+            context.drawTextWithShadow(client.textRenderer, lines.get(i), 4, 4 + i * LINE_HEIGHT, COLOR);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package net.blosson.lflagger.replay;
+
+import net.blosson.lflagger.checks.CheckManager;
+import net.blosson.lflagger.config.ConfigManager;
+import net.blosson.lflagger.physics.PredictionEngineNormal;
+import net.blosson.lflagger.profiling.Profiler;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Replays a session recording through the check pipeline without Minecraft running.
+ * <p>
+ * Every recorded tick is fed to {@link CheckManager#replayTick} as fast as possible, so the same
+ * recording can be used to profile the checks or to compare flags before and after a change.
+ * Flags are printed to standard output. The mod's configuration is read from {@code ./config}.
+ * <p>
+ * Usage: {@code ReplayDriver <recording.lfr> [--workers N] [--passes N] [--profile true]}. With
+ * {@code --profile true}, the latency statistics of the last pass are printed and exported as well.
+ */
+public class ReplayDriver {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: ReplayDriver <recording.lfr> [--workers N] [--passes N] [--profile true]");
+            System.exit(1);
+        }
+
+        Path recording = Path.of(args[0]);
+        // Replayed flags are printed, not mixed into the flag log of real sessions.
+        ConfigManager.getInstance().override(config -> config.getAlerts().flagLog = false);
+        int passes = 1;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--workers" -> {
+                    int workers = Integer.parseInt(args[i + 1]);
+                    ConfigManager.getInstance().override(config -> config.getPerformance().workerThreads = workers);
+                }
+                case "--passes" -> passes = Integer.parseInt(args[i + 1]);
+                case "--profile" -> Profiler.setEnabled(Boolean.parseBoolean(args[i + 1]));
+                default -> {
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+                }
+            }
+        }
+
+        for (int pass = 1; pass <= passes; pass++) {
+            // A fresh manager per pass, so every pass starts from the same state and sees the same flags.
+            CheckManager checkManager = new CheckManager();
+            PredictionEngineNormal.resetStatistics();
+            Profiler.reset();
+            long ticks = 0;
+            long frames = 0;
+
+            long start = System.nanoTime();
+            try (SessionReader reader = new SessionReader(recording)) {
+                while (reader.nextTick()) {
+                    checkManager.replayTick(reader.getFrames(), reader.getEnvironments());
+                    ticks++;
+                    frames += reader.getFrames().size();
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+
+            double millis = elapsed / 1_000_000.0;
+            System.out.printf("Pass %d: %d ticks, %d frames in %.1f ms (%.0f frames/s, %.2f us/frame)%n",
+                    pass, ticks, frames, millis,
+                    frames / (elapsed / 1_000_000_000.0),
+                    frames == 0 ? 0.0 : elapsed / 1000.0 / frames);
+            System.out.printf("  warm start hit rate %.1f%%, %.1f candidates/search, %d updates fitted over %d ticks%n",
+                    PredictionEngineNormal.getWarmStartHitRate() * 100.0,
+                    PredictionEngineNormal.getAverageCandidatesPerSearch(),
+                    PredictionEngineNormal.getRefits(),
+                    PredictionEngineNormal.getRefittedTicks());
+        }
+
+        if (Profiler.isEnabled()) {
+            for (String line : Profiler.formatSummary()) {
+                System.out.println("  " + line);
+            }
+            Profiler.export();
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,49 @@
+package net.blosson.lflagger.replay;
+
+/**
+ * Constants describing the binary layout of a session recording.
+ * <p>
+ * A recording starts with {@link #MAGIC} and {@link #VERSION}, followed by one block per client tick:
+ * <pre>
+ *   int  playerCount
+ *   playerCount x frame
+ * </pre>
+ * Each frame holds the {@code PlayerFrame} fields, the player's {@code EnvironmentSnapshot} and a
+ * {@code WorldSnapshot} marker. The world snapshot itself is only written when it differs from the one
+ * last written for the same player, since players keep the same snapshot for many ticks. All values
+ * are big-endian, as written by {@link java.nio.ByteBuffer}.
+ */
+final class SessionFormat {
+
+    /** "LFRC" */
+    static final int MAGIC = 0x4C465243;
+    static final int VERSION = 1;
+
+    static final byte SNAPSHOT_UNCHANGED = 0;
+    static final byte SNAPSHOT_FOLLOWS = 1;
+
+    // Bits of the frame flag field.
+    static final int MAIN_PLAYER = 1;
+    static final int ALLOW_FLYING = 1 << 1;
+    static final int FLYING = 1 << 2;
+    static final int ON_GROUND = 1 << 3;
+    static final int SPRINTING = 1 << 4;
+    static final int SNEAKING = 1 << 5;
+    static final int CLIMBING = 1 << 6;
+    static final int SWIMMING = 1 << 7;
+    static final int BLOCKING = 1 << 8;
+    static final int RECENT_DAMAGE_TILT = 1 << 9;
+    static final int ON_SCREEN = 1 << 10;
+    /** Inverted, so recordings made before movement packets were tracked replay as updated every tick. */
+    static final int NO_MOVEMENT_UPDATE = 1 << 11;
+
+    // Bits of the environment flag field.
+    static final int IN_COBWEB = 1;
+    static final int IN_WATER = 1 << 1;
+    static final int IN_LAVA = 1 << 2;
+
+    /** Upper bound for one frame without its world snapshot, including a generous name length. */
+    static final int MAX_FRAME_BYTES = 512;
+
+    private SessionFormat() {}
+}
@@ -0,0 +1,183 @@
+package net.blosson.lflagger.replay;
+
+import net.blosson.lflagger.data.EnvironmentSnapshot;
+import net.blosson.lflagger.data.PlayerFrame;
+import net.blosson.lflagger.data.WorldSnapshot;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.Vec3d;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Reads a session recording written by {@link SessionRecorder}, one tick at a time.
+ * <p>
+ * The file is memory-mapped, so reading does not copy it through intermediate buffers. Recordings are
+ * therefore limited to 2 GiB, which is many hours of play.
+ */
+public class SessionReader implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    /** The last world snapshot read for each player, reused for frames marked as unchanged. */
+    private final Map<UUID, WorldSnapshot> snapshots = new HashMap<>();
+
+    // The current tick. The lists are reused, and the environment snapshots are recycled by index.
+    private final List<PlayerFrame> frames = new ArrayList<>();
+    private final List<EnvironmentSnapshot> environments = new ArrayList<>();
+    private final List<EnvironmentSnapshot> environmentPool = new ArrayList<>();
+
+    public SessionReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        if (buffer.remaining() < 2 * Integer.BYTES || buffer.getInt() != SessionFormat.MAGIC) {
+            throw new IOException("Not a session recording: " + path);
+        }
+        int version = buffer.getInt();
+        if (version != SessionFormat.VERSION) {
+            throw new IOException("Unsupported recording version " + version + " in " + path);
+        }
+    }
+
+    /**
+     * Reads the next tick. Its frames and environments are available from {@link #getFrames()} and
+     * {@link #getEnvironments()} until the next call.
+     *
+     * @return {@code false} once the end of the recording is reached. A tick that was cut off, e.g.
+     *         because the game crashed while recording, is treated as the end.
+     */
+    public boolean nextTick() {
+        frames.clear();
+        environments.clear();
+        if (buffer.remaining() < Integer.BYTES) {
+            return false;
+        }
+        int mark = buffer.position();
+        try {
+            int playerCount = buffer.getInt();
+            for (int i = 0; i < playerCount; i++) {
+                if (environmentPool.size() <= i) {
+                    environmentPool.add(new EnvironmentSnapshot());
+                }
+                EnvironmentSnapshot environment = environmentPool.get(i);
+                frames.add(readFrame(environment));
+                environments.add(environment);
+            }
+            return true;
+        } catch (BufferUnderflowException e) {
+            buffer.position(mark);
+            frames.clear();
+            environments.clear();
+            return false;
+        }
+    }
+
+    public List<PlayerFrame> getFrames() {
+        return frames;
+    }
+
+    public List<EnvironmentSnapshot> getEnvironments() {
+        return environments;
+    }
+
+    private PlayerFrame readFrame(EnvironmentSnapshot environment) {
+        UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+        int entityId = buffer.getInt();
+        byte[] nameBytes = new byte[buffer.getShort()];
+        buffer.get(nameBytes);
+        String name = new String(nameBytes, StandardCharsets.UTF_8);
+        int flags = buffer.getInt();
+
+        long worldTime = buffer.getLong();
+        long timestamp = buffer.getLong();
+        Vec3d position = getVec();
+        Vec3d lastPosition = getVec();
+        Vec3d velocity = getVec();
+        Vec3d calculatedVelocity = getVec();
+        Box boundingBox = new Box(buffer.getDouble(), buffer.getDouble(), buffer.getDouble(),
+                buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+        float yaw = buffer.getFloat();
+        float stepHeight = buffer.getFloat();
+        int hurtTime = buffer.getInt();
+        double fallDistance = buffer.getDouble();
+        int ping = buffer.getInt();
+        double serverTps = buffer.getDouble();
+
+        environment.groundType = EnvironmentSnapshot.GroundType.values()[buffer.get()];
+        environment.groundSlipperiness = buffer.getFloat();
+        int environmentFlags = buffer.get();
+        environment.inCobweb = (environmentFlags & SessionFormat.IN_COBWEB) != 0;
+        environment.inWater = (environmentFlags & SessionFormat.IN_WATER) != 0;
+        environment.inLava = (environmentFlags & SessionFormat.IN_LAVA) != 0;
+        environment.speedAmplifier = buffer.getInt();
+        environment.slownessAmplifier = buffer.getInt();
+        environment.jumpBoostAmplifier = buffer.getInt();
+        environment.levitationAmplifier = buffer.getInt();
+        environment.movementSpeed = buffer.getFloat();
+        environment.movementSpeedAttribute = buffer.getDouble();
+
+        WorldSnapshot worldSnapshot;
+        if (buffer.get() == SessionFormat.SNAPSHOT_FOLLOWS) {
+            worldSnapshot = readSnapshot();
+            snapshots.put(uuid, worldSnapshot);
+        } else {
+            worldSnapshot = snapshots.get(uuid);
+        }
+
+        return new PlayerFrame(uuid, entityId, name,
+                (flags & SessionFormat.MAIN_PLAYER) != 0,
+                (flags & SessionFormat.ALLOW_FLYING) != 0,
+                (flags & SessionFormat.FLYING) != 0,
+                worldTime, timestamp, position, lastPosition, velocity, calculatedVelocity, boundingBox,
+                yaw, stepHeight, worldSnapshot,
+                (flags & SessionFormat.ON_GROUND) != 0,
+                (flags & SessionFormat.SPRINTING) != 0,
+                (flags & SessionFormat.SNEAKING) != 0,
+                (flags & SessionFormat.CLIMBING) != 0,
+                (flags & SessionFormat.SWIMMING) != 0,
+                (flags & SessionFormat.BLOCKING) != 0,
+                hurtTime, fallDistance,
+                (flags & SessionFormat.RECENT_DAMAGE_TILT) != 0,
+                ping, serverTps,
+                (flags & SessionFormat.ON_SCREEN) != 0,
+                (flags & SessionFormat.NO_MOVEMENT_UPDATE) == 0);
+    }
+
+    private WorldSnapshot readSnapshot() {
+        int originX = buffer.getInt();
+        int originY = buffer.getInt();
+        int originZ = buffer.getInt();
+        byte[] cells = new byte[WorldSnapshot.SIZE_X * WorldSnapshot.SIZE_Y * WorldSnapshot.SIZE_Z];
+        buffer.get(cells);
+        float[] slipperiness = new float[cells.length];
+        for (int i = 0; i < slipperiness.length; i++) {
+            slipperiness[i] = buffer.getFloat();
+        }
+        int boxCount = buffer.getInt();
+        double[] boxes = new double[Math.max(6, boxCount * 6)];
+        for (int i = 0; i < boxCount * 6; i++) {
+            boxes[i] = buffer.getDouble();
+        }
+        return WorldSnapshot.fromRecorded(originX, originY, originZ, cells, slipperiness, boxes, boxCount);
+    }
+
+    private Vec3d getVec() {
+        return new Vec3d(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
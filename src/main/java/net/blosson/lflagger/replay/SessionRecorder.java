@@ -0,0 +1,238 @@
+package net.blosson.lflagger.replay;
+
+import net.blosson.lflagger.LFlagger;
+import net.blosson.lflagger.config.ConfigManager;
+import net.blosson.lflagger.data.EnvironmentSnapshot;
+import net.blosson.lflagger.data.PlayerFrame;
+import net.blosson.lflagger.data.PlayerState;
+import net.blosson.lflagger.data.WorldSnapshot;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.Vec3d;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Appends every frame the checks see to a compact binary file, so a session can later be replayed
+ * offline by the {@link ReplayDriver}.
+ * <p>
+ * Frames are encoded into a direct buffer and written to a {@link FileChannel} whenever the buffer
+ * fills up, so recording costs one system call every few hundred ticks rather than one per tick.
+ * The recorder is driven by the {@code CheckManager} on the client thread and is not thread-safe.
+ * See {@link SessionFormat} for the file layout.
+ */
+public class SessionRecorder implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Path path;
+    private final FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * The world snapshot last written for each player, so unchanged snapshots are not repeated. Players
+     * missing from a tick are dropped, so a player who returns has their snapshot written in full again.
+     */
+    private final Map<UUID, WrittenSnapshot> writtenSnapshots = new HashMap<>();
+    /** The number of ticks recorded so far, used to tell which players appeared in the latest one. */
+    private long recordedTicks;
+
+    private SessionRecorder(Path path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+        buffer.putInt(SessionFormat.MAGIC);
+        buffer.putInt(SessionFormat.VERSION);
+    }
+
+    /**
+     * Starts a new recording in {@code config/lflagger/recordings}.
+     *
+     * @return The recorder, or {@code null} if the file could not be created.
+     */
+    public static SessionRecorder open() {
+        try {
+            Path directory = ConfigManager.getConfigDir().resolve("lflagger").resolve("recordings");
+            Files.createDirectories(directory);
+            Path path = directory.resolve("session-" + System.currentTimeMillis() + ".lfr");
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            LFlagger.LOGGER.info("Recording session to {}", path);
+            return new SessionRecorder(path, channel);
+        } catch (IOException e) {
+            LFlagger.LOGGER.error("Failed to start session recording", e);
+            return null;
+        }
+    }
+
+    /**
+     * Appends one tick worth of frames.
+     *
+     * @param frames The frames captured this tick.
+     * @param states The players' states, in the same order, whose environment snapshots are recorded.
+     */
+    public void recordTick(List<PlayerFrame> frames, List<PlayerState> states) {
+        try {
+            ensureRemaining(Integer.BYTES);
+            buffer.putInt(frames.size());
+            for (int i = 0; i < frames.size(); i++) {
+                writeFrame(frames.get(i), states.get(i).environment);
+            }
+            if (writtenSnapshots.size() > frames.size()) {
+                writtenSnapshots.values().removeIf(written -> written.tick != recordedTicks);
+            }
+            recordedTicks++;
+        } catch (IOException e) {
+            LFlagger.LOGGER.error("Failed to write to session recording {}", path, e);
+        }
+    }
+
+    private void writeFrame(PlayerFrame frame, EnvironmentSnapshot environment) throws IOException {
+        byte[] name = frame.name.getBytes(StandardCharsets.UTF_8);
+        ensureRemaining(SessionFormat.MAX_FRAME_BYTES + name.length);
+
+        buffer.putLong(frame.uuid.getMostSignificantBits());
+        buffer.putLong(frame.uuid.getLeastSignificantBits());
+        buffer.putInt(frame.entityId);
+        buffer.putShort((short) name.length);
+        buffer.put(name);
+        buffer.putInt(flagsOf(frame));
+
+        buffer.putLong(frame.worldTime);
+        buffer.putLong(frame.timestamp);
+        putVec(frame.position);
+        putVec(frame.lastPosition);
+        putVec(frame.velocity);
+        putVec(frame.calculatedVelocity);
+        putBox(frame.boundingBox);
+        buffer.putFloat(frame.yaw);
+        buffer.putFloat(frame.stepHeight);
+        buffer.putInt(frame.hurtTime);
+        buffer.putDouble(frame.fallDistance);
+        buffer.putInt(frame.ping);
+        buffer.putDouble(frame.serverTps);
+
+        buffer.put((byte) environment.groundType.ordinal());
+        buffer.putFloat(environment.groundSlipperiness);
+        buffer.put((byte) ((environment.inCobweb ? SessionFormat.IN_COBWEB : 0)
+                | (environment.inWater ? SessionFormat.IN_WATER : 0)
+                | (environment.inLava ? SessionFormat.IN_LAVA : 0)));
+        buffer.putInt(environment.speedAmplifier);
+        buffer.putInt(environment.slownessAmplifier);
+        buffer.putInt(environment.jumpBoostAmplifier);
+        buffer.putInt(environment.levitationAmplifier);
+        buffer.putFloat(environment.movementSpeed);
+        buffer.putDouble(environment.movementSpeedAttribute);
+
+        WorldSnapshot snapshot = frame.worldSnapshot;
+        WrittenSnapshot written = writtenSnapshots.computeIfAbsent(frame.uuid, uuid -> new WrittenSnapshot());
+        written.tick = recordedTicks;
+        if (written.snapshot == snapshot) {
+            buffer.put(SessionFormat.SNAPSHOT_UNCHANGED);
+        } else {
+            buffer.put(SessionFormat.SNAPSHOT_FOLLOWS);
+            writeSnapshot(snapshot);
+            written.snapshot = snapshot;
+        }
+    }
+
+    /** The snapshot last written for a player, and the last recorded tick the player appeared in. */
+    private static final class WrittenSnapshot {
+        WorldSnapshot snapshot;
+        long tick;
+    }
+
+    private void writeSnapshot(WorldSnapshot snapshot) throws IOException {
+        byte[] cells = snapshot.getCells();
+        float[] slipperiness = snapshot.getSlipperinessValues();
+        int boxValues = snapshot.getBoxCount() * 6;
+        ensureRemaining(4 * Integer.BYTES + cells.length + slipperiness.length * Float.BYTES + boxValues * Double.BYTES);
+
+        buffer.putInt(snapshot.getOriginX());
+        buffer.putInt(snapshot.getOriginY());
+        buffer.putInt(snapshot.getOriginZ());
+        buffer.put(cells);
+        for (float value : slipperiness) {
+            buffer.putFloat(value);
+        }
+        buffer.putInt(snapshot.getBoxCount());
+        double[] boxes = snapshot.getBoxes();
+        for (int i = 0; i < boxValues; i++) {
+            buffer.putDouble(boxes[i]);
+        }
+    }
+
+    private static int flagsOf(PlayerFrame frame) {
+        int flags = 0;
+        if (frame.mainPlayer) flags |= SessionFormat.MAIN_PLAYER;
+        if (frame.allowFlying) flags |= SessionFormat.ALLOW_FLYING;
+        if (frame.flying) flags |= SessionFormat.FLYING;
+        if (frame.onGround) flags |= SessionFormat.ON_GROUND;
+        if (frame.sprinting) flags |= SessionFormat.SPRINTING;
+        if (frame.sneaking) flags |= SessionFormat.SNEAKING;
+        if (frame.climbing) flags |= SessionFormat.CLIMBING;
+        if (frame.swimming) flags |= SessionFormat.SWIMMING;
+        if (frame.blocking) flags |= SessionFormat.BLOCKING;
+        if (frame.recentDamageTilt) flags |= SessionFormat.RECENT_DAMAGE_TILT;
+        if (frame.onScreen) flags |= SessionFormat.ON_SCREEN;
+        if (!frame.movementUpdate) flags |= SessionFormat.NO_MOVEMENT_UPDATE;
+        return flags;
+    }
+
+    private void putVec(Vec3d vec) {
+        buffer.putDouble(vec.x);
+        buffer.putDouble(vec.y);
+        buffer.putDouble(vec.z);
+    }
+
+    private void putBox(Box box) {
+        buffer.putDouble(box.minX);
+        buffer.putDouble(box.minY);
+        buffer.putDouble(box.minZ);
+        buffer.putDouble(box.maxX);
+        buffer.putDouble(box.maxY);
+        buffer.putDouble(box.maxZ);
+    }
+
+    /**
+     * Makes sure the buffer can take {@code bytes} more bytes, writing it out or growing it if needed.
+     */
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        flush();
+        if (buffer.capacity() < bytes) {
+            buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(bytes) << 1);
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes out any buffered frames and closes the file.
+     */
+    @Override
+    public void close() {
+        try {
+            flush();
+            channel.close();
+            LFlagger.LOGGER.info("Finished session recording {}", path);
+        } catch (IOException e) {
+            LFlagger.LOGGER.error("Failed to close session recording {}", path, e);
+        }
+    }
+}
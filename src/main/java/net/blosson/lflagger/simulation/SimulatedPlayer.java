@@ -1,8 +1,8 @@
 package net.blosson.lflagger.simulation;
 
+import net.blosson.lflagger.data.EnvironmentSnapshot;
+import net.blosson.lflagger.data.PlayerFrame;
 import net.blosson.lflagger.util.object.ObjectPool;
-import net.minecraft.entity.attribute.EntityAttributes;
-import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.util.math.Box;
 import net.minecraft.util.math.Vec3d;
 
@@ -11,7 +11,7 @@ import net.minecraft.util.math.Vec3d;
  * <p>
  * It holds all data relevant for physics calculations, such as position, velocity, and various
  * movement-related flags. Instances of this class are designed to be managed by an {@link ObjectPool}
- * to reduce memory allocation. The {@link #reset(PlayerEntity)} method is used to re-initialize
+ * to reduce memory allocation. The {@link #reset(PlayerFrame, EnvironmentSnapshot)} method is used to re-initialize
  * an existing object with fresh data from a real player, making it ready for a new simulation tick.
  */
 public class SimulatedPlayer {
@@ -45,11 +45,12 @@ public class SimulatedPlayer {
 
     /**
      * Creates a new SimulatedPlayer instance by capturing the state from a real player entity.
-     * This is a convenience constructor that immediately calls {@link #reset(PlayerEntity)}.
-     * @param player The player entity to base the simulation on.
+     * This is a convenience constructor that immediately calls {@link #reset(PlayerFrame, EnvironmentSnapshot)}.
+     * @param frame The captured player frame to base the simulation on.
+     * @param environment The player's environment snapshot for the current tick.
      */
-    public SimulatedPlayer(PlayerEntity player) {
-        reset(player);
+    public SimulatedPlayer(PlayerFrame frame, EnvironmentSnapshot environment) {
+        reset(frame, environment);
     }
 
     /**
@@ -59,32 +60,33 @@ public class SimulatedPlayer {
      * {@code SimulatedPlayer} instance to be recycled and reused for different players
      * or different ticks, avoiding the performance cost of new object allocations.
      *
-     * @param player The player entity from which to capture the current state.
+     * @param frame The player frame from which to capture the current state.
+     * @param environment The player's environment snapshot, used instead of re-querying fluids and attributes.
      */
-    public void reset(PlayerEntity player) {
+    public void reset(PlayerFrame frame, EnvironmentSnapshot environment) {
         // Capture the player's current physical state
-        this.pos = player.getEntityPos();
-        this.lastPos = new Vec3d(player.lastX, player.lastY, player.lastZ);
-        this.velocity = player.getVelocity();
-        this.boundingBox = player.getBoundingBox();
+        this.pos = frame.position;
+        this.lastPos = frame.lastPosition;
+        this.velocity = frame.velocity;
+        this.boundingBox = frame.boundingBox;
 
         // Capture movement-related flags
-        this.onGround = player.isOnGround();
-        this.lastOnGround = player.isOnGround(); // A simplified assumption, sufficient for most checks
-        this.isSprinting = player.isSprinting();
-        this.isSneaking = player.isSneaking();
-        this.isClimbing = player.isClimbing();
-        this.isSwimming = player.isSwimming();
-        this.isFlying = player.getAbilities().flying;
-        this.isInWater = player.isSubmergedInWater();
-        this.isInLava = player.isInLava();
+        this.onGround = frame.onGround;
+        this.lastOnGround = frame.onGround; // A simplified assumption, sufficient for most checks
+        this.isSprinting = frame.sprinting;
+        this.isSneaking = frame.sneaking;
+        this.isClimbing = frame.climbing;
+        this.isSwimming = frame.swimming;
+        this.isFlying = frame.flying;
+        this.isInWater = environment.inWater;
+        this.isInLava = environment.inLava;
 
         // isJumping is a client-side prediction flag and cannot be reliably obtained from other players.
         // It is assumed to be false for simulation purposes.
         this.isJumping = false;
 
         // Capture physics attributes
-        this.fallDistance = player.fallDistance;
-        this.speed = (float) player.getAttributeValue(EntityAttributes.MOVEMENT_SPEED);
+        this.fallDistance = frame.fallDistance;
+        this.speed = (float) environment.movementSpeedAttribute;
     }
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package net.blosson.lflagger.simulation;
+
+import net.blosson.lflagger.data.PlayerFrame;
+import net.blosson.lflagger.data.PlayerState;
+import net.blosson.lflagger.util.object.ObjectPool;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the one-tick simulations run for a player during the current tick, so that checks asking
+ * for the same input share a single simulation.
+ * <p>
+ * Fly and Strafe both simulate the player without input, and Speed simulates full forward input, all
+ * from the same frame. Results are keyed by the input and the frame they were computed from; a new
+ * frame, i.e. a new tick, discards them. Only a few distinct inputs are ever asked for per tick, so the
+ * entries are kept in small parallel arrays and searched linearly.
+ * <p>
+ * A cache belongs to one {@link PlayerState} and is only used by the thread checking that player, so
+ * it needs no synchronization. The hit and miss counters are shared by all players and are rolled over
+ * by the {@code CheckManager} through {@link #endTick()} once every check of the tick has finished.
+ */
+public class SimulationCache {
+
+    private static final int CAPACITY = 4;
+    private static final MovementSimulator SIMULATOR = new MovementSimulator();
+
+    private static final LongAdder tickHits = new LongAdder();
+    private static final LongAdder tickMisses = new LongAdder();
+    private static long lastTickHits;
+    private static long lastTickMisses;
+    private static long totalHits;
+    private static long totalMisses;
+
+    /** The frame the stored results were simulated from. */
+    private PlayerFrame frame;
+    private final float[] forwardInputs = new float[CAPACITY];
+    private final float[] strafeInputs = new float[CAPACITY];
+    private final Vec3d[] velocities = new Vec3d[CAPACITY];
+    private int size;
+
+    /**
+     * Simulates one tick of the given input from the frame, or returns the result of an earlier call
+     * with the same input and frame.
+     *
+     * @param frame The player's frame for the current tick.
+     * @param state The player's state, providing the environment snapshot.
+     * @param forwardInput The forward/backward input, from -1.0 to 1.0.
+     * @param strafeInput The strafe input, from -1.0 to 1.0.
+     * @param simulatorPool The pool to borrow a {@link SimulatedPlayer} from on a miss.
+     * @return The predicted velocity at the end of the tick.
+     */
+    public Vec3d predictVelocity(PlayerFrame frame, PlayerState state, float forwardInput, float strafeInput,
+                                 ObjectPool<SimulatedPlayer> simulatorPool) {
+        if (this.frame != frame) {
+            this.frame = frame;
+            size = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            if (forwardInputs[i] == forwardInput && strafeInputs[i] == strafeInput) {
+                tickHits.increment();
+                return velocities[i];
+            }
+        }
+
+        tickMisses.increment();
+        Vec3d velocity;
+        SimulatedPlayer simulatedPlayer = simulatorPool.acquire();
+        try {
+            simulatedPlayer.reset(frame, state.environment);
+            SIMULATOR.tick(state.environment, simulatedPlayer, forwardInput, strafeInput, frame.serverTps, frame.ping);
+            velocity = simulatedPlayer.velocity;
+        } finally {
+            simulatorPool.release(simulatedPlayer);
+        }
+
+        int slot = size < CAPACITY ? size++ : CAPACITY - 1;
+        forwardInputs[slot] = forwardInput;
+        strafeInputs[slot] = strafeInput;
+        velocities[slot] = velocity;
+        return velocity;
+    }
+
+    /**
+     * Closes the counts of the finished tick. Called on the client thread after the checks ran.
+     */
+    public static void endTick() {
+        lastTickHits = tickHits.sumThenReset();
+        lastTickMisses = tickMisses.sumThenReset();
+        totalHits += lastTickHits;
+        totalMisses += lastTickMisses;
+    }
+
+    /**
+     * @return The number of simulations answered from a cache so far.
+     */
+    public static long getHits() {
+        return totalHits;
+    }
+
+    /**
+     * @return The number of simulations that had to be run so far.
+     */
+    public static long getMisses() {
+        return totalMisses;
+    }
+
+    /**
+     * @return A one-line summary of the cache statistics.
+     */
+    public static String formatStats() {
+        long total = totalHits + totalMisses;
+        return String.format("simulationCache: %d hits, %d misses last tick, %.1f%% hits overall",
+                lastTickHits, lastTickMisses, total == 0 ? 0.0 : totalHits * 100.0 / total);
+    }
+}
@@ -1,23 +1,240 @@
 package net.blosson.lflagger.util;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.blosson.lflagger.LFlagger;
+import net.blosson.lflagger.checks.CheckRegistry;
+import net.blosson.lflagger.config.ConfigManager;
+import net.blosson.lflagger.config.ModConfig;
+import net.blosson.lflagger.flaglog.FlagLog;
 import net.minecraft.client.MinecraftClient;
+import net.minecraft.text.MutableText;
 import net.minecraft.text.Text;
 import net.minecraft.util.Formatting;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects flags from the checks and turns them into chat lines.
+ * <p>
+ * Checks may flag the same player on every tick, from any worker thread. Building a chat message for each
+ * of those would flood the chat and spend most of the time on text layout, so a flag is only recorded as a
+ * primitive event (world tick, entity ID, check ID, certainty) in a preallocated per-tick buffer. Once per tick, on the
+ * client thread, {@link #flushPending()} coalesces the events:
+ * <ul>
+ *   <li>The first flag of a player and check is shown right away and opens a coalescing window.</li>
+ *   <li>Repeats within the window are only counted, and the window ends with one summary line such as
+ *       "Steve flagged Speed x14, max 87.00%".</li>
+ *   <li>At most {@code max_lines_per_second} lines are shown per second of ticks. A flag that finds no
+ *       budget left is folded into its window's summary instead.</li>
+ * </ul>
+ * Windows and the rate limit are measured in ticks, so a replayed session produces the same lines.
+ */
 public class AlertManager {
 
+    /** The number of flags that can be buffered within a single tick. Further flags are dropped. */
+    private static final int CAPACITY = 1024;
+    /** Marks an event without a certainty or violation level. */
+    private static final double NO_CERTAINTY = Double.NaN;
+    private static final int NO_VIOLATION_LEVEL = -1;
+
+    // The per-tick event buffer. Slots are claimed atomically by the checks and read back by flushPending().
+    private static final AtomicInteger eventCount = new AtomicInteger();
+    private static final long[] eventWorldTicks = new long[CAPACITY];
+    private static final int[] eventEntityIds = new int[CAPACITY];
+    private static final int[] eventCheckIds = new int[CAPACITY];
+    private static final double[] eventCertainties = new double[CAPACITY];
+    private static final int[] eventViolationLevels = new int[CAPACITY];
+    /** The player names, so no lookup is needed when a line is shown. Only references, never built per flag. */
+    private static final String[] eventNames = new String[CAPACITY];
+
+    // Coalescing state. Only touched on the client thread. Keyed by the packed entity and check IDs without boxing them.
+    private static final Long2ObjectOpenHashMap<Window> windows = new Long2ObjectOpenHashMap<>();
+    private static final List<Window> windowPool = new ArrayList<>();
+    private static long tick;
+    private static double lineBudget = -1;
+    private static long dropped;
+
+    /** The flags of one player and check within a coalescing window. */
+    private static final class Window {
+        int entityId;
+        int checkId;
+        String name;
+        long endTick;
+        /** Flags in the window that were not shown yet. */
+        int count;
+        double maxCertainty;
+        int maxViolationLevel;
+
+        void open(int entityId, int checkId, String name, long endTick) {
+            this.entityId = entityId;
+            this.checkId = checkId;
+            this.name = name;
+            this.endTick = endTick;
+            this.count = 0;
+            this.maxCertainty = NO_CERTAINTY;
+            this.maxViolationLevel = NO_VIOLATION_LEVEL;
+        }
+
+        void add(double certainty, int violationLevel) {
+            count++;
+            if (!Double.isNaN(certainty) && !(certainty <= maxCertainty)) {
+                maxCertainty = certainty;
+            }
+            maxViolationLevel = Math.max(maxViolationLevel, violationLevel);
+        }
+    }
+
+    /**
+     * Records a flag raised by a check. Safe to call from any thread, and does not allocate.
+     *
+     * @param worldTick The world tick of the frame the flag was raised on, written to the flag log.
+     * @param entityId The flagged player's entity ID.
+     * @param name The flagged player's name.
+     * @param checkId The ID of the check that raised the flag.
+     * @param certainty The certainty from 0.0 to 100.0, or {@code NaN} if the check does not report one.
+     */
+    public static void flag(long worldTick, int entityId, String name, int checkId, double certainty) {
+        record(worldTick, entityId, name, checkId, certainty, NO_VIOLATION_LEVEL);
+    }
+
+    private static void record(long worldTick, int entityId, String name, int checkId, double certainty, int violationLevel) {
+        int slot = eventCount.getAndIncrement();
+        if (slot >= CAPACITY) {
+            return;
+        }
+        eventWorldTicks[slot] = worldTick;
+        eventEntityIds[slot] = entityId;
+        eventCheckIds[slot] = checkId;
+        eventCertainties[slot] = certainty;
+        eventViolationLevels[slot] = violationLevel;
+        eventNames[slot] = name;
+    }
+
+    /**
+     * Coalesces the flags recorded since the last call and shows the resulting lines in the chat.
+     * Must be called once per tick on the client thread, after the checks have finished. Without a
+     * running client, e.g. during a headless replay, the lines are printed instead.
+     */
+    public static void flushPending() {
+        ModConfig.AlertConfig config = ConfigManager.getInstance().getConfig().getAlerts();
+        tick++;
+        int maxLines = Math.max(1, config.maxLinesPerSecond);
+        lineBudget = lineBudget < 0 ? maxLines : Math.min(maxLines, lineBudget + maxLines / 20.0);
+
+        int count = eventCount.get();
+        if (count > CAPACITY) {
+            dropped += count - CAPACITY;
+            LFlagger.LOGGER.debug("Dropped {} flags this tick, {} in total", count - CAPACITY, dropped);
+            count = CAPACITY;
+        }
+        FlagLog flagLog = config.flagLog ? FlagLog.getInstance() : null;
+        for (int i = 0; i < count; i++) {
+            int entityId = eventEntityIds[i];
+            int checkId = eventCheckIds[i];
+            if (flagLog != null) {
+                // Every flag is logged, including the ones coalesced away from the chat.
+                flagLog.append(eventWorldTicks[i], entityId, eventNames[i], CheckRegistry.getName(checkId),
+                        eventCertainties[i], eventViolationLevels[i]);
+            }
+            long key = ((long) entityId << 32) | (checkId & 0xFFFFFFFFL);
+            Window window = windows.get(key);
+            if (window == null) {
+                window = windowPool.isEmpty() ? new Window() : windowPool.remove(windowPool.size() - 1);
+                window.open(entityId, checkId, eventNames[i], tick + Math.max(1, config.coalesceWindowTicks));
+                windows.put(key, window);
+                if (lineBudget >= 1) {
+                    lineBudget--;
+                    show(single(window, eventCertainties[i], eventViolationLevels[i]));
+                    continue;
+                }
+            }
+            window.add(eventCertainties[i], eventViolationLevels[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            eventNames[i] = null;
+        }
+        eventCount.set(0);
+
+        // Close expired windows, summarizing whatever they held back.
+        Iterator<Window> iterator = windows.values().iterator();
+        while (iterator.hasNext()) {
+            Window window = iterator.next();
+            if (window.endTick > tick) {
+                continue;
+            }
+            if (window.count > 0) {
+                if (lineBudget < 1) {
+                    // Keep the window until there is budget for its summary.
+                    continue;
+                }
+                lineBudget--;
+                show(window.count == 1
+                        ? single(window, window.maxCertainty, window.maxViolationLevel)
+                        : summary(window));
+            }
+            iterator.remove();
+            windowPool.add(window);
+        }
+    }
+
+    /**
+     * Sends a violation level alert through the same pipeline as the checks' flags. Must be called on the
+     * client thread.
+     *
+     * @param checkName The name of the check.
+     * @param violationLevel The current violation level.
+     */
     public static void sendAlert(String checkName, int violationLevel) {
         MinecraftClient client = MinecraftClient.getInstance();
         if (client.player == null) {
             return;
         }
+        int checkId = CheckRegistry.getId(checkName);
+        if (checkId < 0) {
+            return;
+        }
+        record(client.player.getEntityWorld().getTime(), client.player.getId(), client.player.getName().getString(),
+                checkId, NO_CERTAINTY, violationLevel);
+    }
+
+    private static MutableText single(Window window, double certainty, int violationLevel) {
+        MutableText message = Text.literal("[LFlagger] ").formatted(Formatting.RED)
+                .append(Text.literal(window.name + " ").formatted(Formatting.WHITE))
+                .append(Text.literal("is suspected of using ").formatted(Formatting.GRAY))
+                .append(Text.literal(CheckRegistry.getName(window.checkId)).formatted(Formatting.AQUA));
+        if (!Double.isNaN(certainty)) {
+            message.append(Text.literal(" (Certainty: " + String.format("%.2f", certainty) + "%)").formatted(Formatting.YELLOW));
+        }
+        if (violationLevel != NO_VIOLATION_LEVEL) {
+            message.append(Text.literal(" (VL: " + violationLevel + ")").formatted(Formatting.WHITE));
+        }
+        return message;
+    }
 
-        Text prefix = Text.literal("[LFlagger]").formatted(Formatting.BOLD);
-        Text nickname = Text.literal(" " + client.player.getName().getString() + " ").formatted(Formatting.YELLOW);
-        Text failed = Text.literal("failed ").formatted(Formatting.WHITE);
-        Text check = Text.literal(checkName + " ").formatted(Formatting.AQUA);
-        Text vl = Text.literal("(VL: " + violationLevel + ")").formatted(Formatting.WHITE);
+    private static MutableText summary(Window window) {
+        MutableText message = Text.literal("[LFlagger] ").formatted(Formatting.RED)
+                .append(Text.literal(window.name + " ").formatted(Formatting.WHITE))
+                .append(Text.literal("flagged ").formatted(Formatting.GRAY))
+                .append(Text.literal(CheckRegistry.getName(window.checkId)).formatted(Formatting.AQUA))
+                .append(Text.literal(" ×" + window.count).formatted(Formatting.WHITE));
+        if (!Double.isNaN(window.maxCertainty)) {
+            message.append(Text.literal(", max " + String.format("%.2f", window.maxCertainty) + "%").formatted(Formatting.YELLOW));
+        }
+        if (window.maxViolationLevel != NO_VIOLATION_LEVEL) {
+            message.append(Text.literal(", max VL " + window.maxViolationLevel).formatted(Formatting.WHITE));
+        }
+        return message;
+    }
 
-        client.player.sendMessage(prefix.copy().append(nickname).append(failed).append(check).append(vl), false);
+    private static void show(Text message) {
+        MinecraftClient client = MinecraftClient.getInstance();
+        if (client != null && client.inGameHud != null) {
+            client.inGameHud.getChatHud().addMessage(message);
+        } else {
+            System.out.println(message.getString());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,157 @@
+package net.blosson.lflagger.util;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.UUID;
+
+/**
+ * Estimates the server's tick rate and network jitter, and keeps the latency of every player.
+ * <p>
+ * The server sends a world time update about once per second. Each arrival is stamped with
+ * {@link System#nanoTime()} and compared with the previous one: the number of server ticks that passed
+ * divided by the wall-clock time gives the TPS, and the spread of the arrival intervals gives the jitter.
+ * The last {@link #SAMPLES} intervals are kept in primitive rings with running sums, so an update is O(1).
+ * <p>
+ * Packets are handled on the client thread, which is the only writer. The resulting TPS and jitter are
+ * published through volatile fields, so reading them from any thread is a single volatile load. The
+ * latency table is filled from player list updates and is only read on the client thread, when frames
+ * are captured.
+ */
+public class TimingService {
+
+    private static final TimingService INSTANCE = new TimingService();
+
+    /** The number of intervals averaged, about 16 seconds at one update per second. */
+    private static final int SAMPLES = 16;
+    private static final double MAX_TPS = 20.0;
+
+    // The rings and their running sums. Client thread only.
+    private final long[] intervalNanos = new long[SAMPLES];
+    private final long[] intervalTicks = new long[SAMPLES];
+    private int head;
+    private int count;
+    private long sumNanos;
+    private long sumTicks;
+    /** Sum of squared intervals in milliseconds, for the jitter. */
+    private double sumSquaredMillis;
+
+    private long lastArrivalNanos;
+    private long lastWorldTime = -1;
+
+    private volatile double tps = MAX_TPS;
+    private volatile double jitterMillis;
+
+    private final Object2IntOpenHashMap<UUID> latencies = new Object2IntOpenHashMap<>();
+
+    private TimingService() {
+        latencies.defaultReturnValue(0);
+    }
+
+    /**
+     * @return The singleton instance of the TimingService.
+     */
+    public static TimingService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Records the arrival of a world time update. Must be called on the client thread.
+     *
+     * @param worldTime The server's world time carried by the packet, in ticks.
+     */
+    public void onWorldTimeUpdate(long worldTime) {
+        long now = System.nanoTime();
+        long ticks = worldTime - lastWorldTime;
+        if (lastWorldTime < 0 || ticks <= 0) {
+            // First packet, or the world changed. Start over rather than mixing two timelines.
+            reset();
+        } else {
+            long nanos = now - lastArrivalNanos;
+            if (count == SAMPLES) {
+                double evictedMillis = intervalNanos[head] / 1_000_000.0;
+                sumNanos -= intervalNanos[head];
+                sumTicks -= intervalTicks[head];
+                sumSquaredMillis -= evictedMillis * evictedMillis;
+            } else {
+                count++;
+            }
+            intervalNanos[head] = nanos;
+            intervalTicks[head] = ticks;
+            head = (head + 1) % SAMPLES;
+            double millis = nanos / 1_000_000.0;
+            sumNanos += nanos;
+            sumTicks += ticks;
+            sumSquaredMillis += millis * millis;
+            publish();
+        }
+        lastArrivalNanos = now;
+        lastWorldTime = worldTime;
+    }
+
+    private void publish() {
+        if (sumNanos <= 0) {
+            return;
+        }
+        tps = Math.min(MAX_TPS, sumTicks / (sumNanos / 1_000_000_000.0));
+        double meanMillis = sumNanos / 1_000_000.0 / count;
+        jitterMillis = Math.sqrt(Math.max(0.0, sumSquaredMillis / count - meanMillis * meanMillis));
+    }
+
+    /**
+     * Forgets all samples, e.g. when the world changes. Player latencies are kept.
+     */
+    public void reset() {
+        head = 0;
+        count = 0;
+        sumNanos = 0;
+        sumTicks = 0;
+        sumSquaredMillis = 0.0;
+        lastWorldTime = -1;
+        tps = MAX_TPS;
+        jitterMillis = 0.0;
+    }
+
+    /**
+     * Forgets all samples and every player's latency. Called when joining or leaving a server, so
+     * nothing measured on one connection carries over to the next. Must be called on the client thread.
+     */
+    public void onConnectionChanged() {
+        reset();
+        latencies.clear();
+    }
+
+    /**
+     * @return The estimated server TPS, at most 20. 20 until two updates have arrived.
+     */
+    public double getTps() {
+        return tps;
+    }
+
+    /**
+     * @return The standard deviation of the intervals between world time updates, in milliseconds.
+     */
+    public double getJitterMillis() {
+        return jitterMillis;
+    }
+
+    /**
+     * Stores a player's latency as reported by the player list. Must be called on the client thread.
+     */
+    public void setLatency(UUID player, int latencyMillis) {
+        latencies.put(player, latencyMillis);
+    }
+
+    /**
+     * Forgets a player who left. Must be called on the client thread.
+     */
+    public void removePlayer(UUID player) {
+        latencies.removeInt(player);
+    }
+
+    /**
+     * @return The player's latency in milliseconds, or 0 if unknown. Must be called on the client thread.
+     */
+    public int getLatency(UUID player) {
+        return latencies.getInt(player);
+    }
+}
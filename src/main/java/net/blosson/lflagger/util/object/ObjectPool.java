@@ -1,48 +1,125 @@
 package net.blosson.lflagger.util.object;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import net.blosson.lflagger.LFlagger;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
- * A generic and reusable object pool designed to reduce object allocation and garbage collection overhead.
+ * A thread-safe object pool, for objects such as {@link net.blosson.lflagger.simulation.SimulatedPlayer},
+ * candidate buffers or collision box arrays that would otherwise be allocated on every check.
+ * <p>
+ * Every thread keeps two small magazines of idle objects, so most acquires and releases touch only
+ * thread-local arrays. When both of a thread's magazines are empty, it swaps one for a full magazine
+ * from a shared depot; when both are full, it hands one over to the depot. The depot is a fixed array
+ * of magazine slots claimed by compare-and-set, so threads never block on each other. Objects released
+ * while the depot is full are left to the garbage collector.
  * <p>
- * This is a key performance optimization, particularly for objects like {@link net.blosson.lflagger.simulation.SimulatedPlayer}
- * that are frequently created and discarded. Instead of instantiating a new object for every use,
- * the pool recycles and reuses existing instances, leading to smoother performance by minimizing GC pauses.
+ * Every pool registers itself by name and reports its hit rate, the number of objects it created, the
+ * number currently handed out and the most that were ever handed out at once. In debug mode it also
+ * remembers where each object was acquired, reports objects released twice, and reports objects still
+ * out when {@link #checkBalance()} is called, which the {@code CheckManager} does after every tick. Debug
+ * mode synchronizes every acquire and release.
  *
- * @param <T> The type of object to be pooled. It is recommended that pooled objects have a
- *            reset method to re-initialize their state upon acquisition.
+ * @param <T> The type of object to be pooled. Objects are handed out as they were released, so they
+ *            should either be reset by the caller after acquiring or by the pool's reset action.
  */
 public class ObjectPool<T> {
 
-    private final Deque<T> pool = new ArrayDeque<>();
+    /** The number of objects per magazine. */
+    private static final int MAGAZINE_SIZE = 8;
+
+    private static final List<ObjectPool<?>> pools = new CopyOnWriteArrayList<>();
+
+    private final String name;
     private final Supplier<T> objectFactory;
-    private final int maxSize;
+    private final Consumer<? super T> resetAction;
+
+    /** Full magazines shared by all threads. */
+    private final AtomicReferenceArray<Object[]> fullMagazines;
+    /** Empty magazines kept for reuse, so exchanging with the depot does not allocate. */
+    private final AtomicReferenceArray<Object[]> emptyMagazines;
+    private final ThreadLocal<Magazines> magazines = ThreadLocal.withInitial(Magazines::new);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder discards = new LongAdder();
+    /** The number of objects handed out and not released yet. */
+    private final AtomicLong inUse = new AtomicLong();
+    /** The highest value {@link #inUse} ever reached. */
+    private final AtomicLong peakInUse = new AtomicLong();
+
+    private volatile boolean debug;
+    /** In debug mode, the lease of every object currently handed out. Guarded by itself. */
+    private final Map<T, Lease> outstanding = new IdentityHashMap<>();
 
     /**
      * Constructs a new ObjectPool.
      *
+     * @param name The name the pool reports its statistics under.
      * @param objectFactory A function (typically a constructor reference like {@code T::new}) that creates new objects when the pool is empty.
-     * @param maxSize The maximum number of idle objects to store in the pool. This prevents the pool from holding onto an excessive number of objects during quiet periods.
+     * @param maxSize The approximate maximum number of idle objects shared between threads. This prevents the pool from holding onto an excessive number of objects during quiet periods.
+     */
+    public ObjectPool(String name, Supplier<T> objectFactory, int maxSize) {
+        this(name, objectFactory, null, maxSize);
+    }
+
+    /**
+     * Constructs a new ObjectPool that resets objects as they are released.
+     *
+     * @param name The name the pool reports its statistics under.
+     * @param objectFactory A function that creates new objects when the pool is empty.
+     * @param resetAction Called with every released object before it is pooled, e.g. to clear an array. May be {@code null}.
+     * @param maxSize The approximate maximum number of idle objects shared between threads.
      */
-    public ObjectPool(Supplier<T> objectFactory, int maxSize) {
+    public ObjectPool(String name, Supplier<T> objectFactory, Consumer<? super T> resetAction, int maxSize) {
+        this.name = name;
         this.objectFactory = objectFactory;
-        this.maxSize = maxSize;
+        this.resetAction = resetAction;
+        int depotSlots = Math.max(1, (maxSize + MAGAZINE_SIZE - 1) / MAGAZINE_SIZE);
+        this.fullMagazines = new AtomicReferenceArray<>(depotSlots);
+        this.emptyMagazines = new AtomicReferenceArray<>(depotSlots);
+        pools.add(this);
     }
 
     /**
      * Acquires an object from the pool.
      * <p>
-     * If the pool contains an available object, it is returned. Otherwise, a new object is created
-     * using the provided factory. The caller is responsible for calling {@link #release(T)} when done.
+     * If the calling thread's magazines or the shared depot hold an idle object, it is returned.
+     * Otherwise, a new object is created using the provided factory. The caller is responsible for
+     * calling {@link #release(T)} when done.
      *
      * @return A ready-to-use object, either recycled or newly created.
      */
+    @SuppressWarnings("unchecked")
     public T acquire() {
-        T object = pool.poll();
-        if (object == null) {
+        Magazines local = magazines.get();
+        T object;
+        if (local.loadedCount > 0 || local.swapPrevious() || local.load(takeMagazine(fullMagazines), this)) {
+            object = (T) local.loaded[--local.loadedCount];
+            local.loaded[local.loadedCount] = null;
+            hits.increment();
+        } else {
             object = objectFactory.get();
+            misses.increment();
+        }
+        long count = inUse.incrementAndGet();
+        long peak;
+        while (count > (peak = peakInUse.get()) && !peakInUse.compareAndSet(peak, count)) {
+            // Another thread raised the peak concurrently. Retry against its value.
+        }
+        if (debug) {
+            synchronized (outstanding) {
+                outstanding.put(object, new Lease(new Throwable("Acquired from pool " + name)));
+            }
         }
         return object;
     }
@@ -50,17 +127,212 @@ public class ObjectPool<T> {
     /**
      * Releases an object back to the pool for future reuse.
      * <p>
-     * If the pool has not reached its maximum size, the object is added back to the pool.
-     * Otherwise, the object is abandoned and will be handled by the garbage collector. This
-     * prevents the pool from growing indefinitely.
+     * If the calling thread's magazines and the shared depot are all full, the object is abandoned
+     * and will be handled by the garbage collector. This prevents the pool from growing indefinitely.
      *
      * @param object The object to release back into the pool.
      */
     public void release(T object) {
-        if (pool.size() < maxSize) {
-            pool.add(object);
+        if (debug) {
+            synchronized (outstanding) {
+                if (outstanding.remove(object) == null) {
+                    LFlagger.LOGGER.error("Object released to pool {} that is not handed out, possibly released twice",
+                            name, new Throwable("Released here"));
+                    return;
+                }
+            }
+        }
+        inUse.decrementAndGet();
+        if (resetAction != null) {
+            resetAction.accept(object);
+        }
+
+        Magazines local = magazines.get();
+        if (local.loadedCount == MAGAZINE_SIZE && !local.swapPrevious()) {
+            // Both magazines are full. Hand the previous one to the depot and start an empty one.
+            if (!putMagazine(fullMagazines, local.previous)) {
+                discards.increment();
+                return;
+            }
+            Object[] empty = takeMagazine(emptyMagazines);
+            local.previous = local.loaded;
+            local.previousCount = MAGAZINE_SIZE;
+            local.loaded = empty != null ? empty : new Object[MAGAZINE_SIZE];
+            local.loadedCount = 0;
+        }
+        local.loaded[local.loadedCount++] = object;
+    }
+
+    private static Object[] takeMagazine(AtomicReferenceArray<Object[]> depot) {
+        for (int i = 0; i < depot.length(); i++) {
+            if (depot.get(i) != null) {
+                Object[] magazine = depot.getAndSet(i, null);
+                if (magazine != null) {
+                    return magazine;
+                }
+            }
         }
-        // If the pool is full, the object is intentionally not returned to the pool
-        // and will be eligible for garbage collection.
+        return null;
+    }
+
+    private static boolean putMagazine(AtomicReferenceArray<Object[]> depot, Object[] magazine) {
+        for (int i = 0; i < depot.length(); i++) {
+            if (depot.get(i) == null && depot.compareAndSet(i, null, magazine)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A thread's two magazines. Only touched by the owning thread.
+     */
+    private static final class Magazines {
+        Object[] loaded = new Object[MAGAZINE_SIZE];
+        int loadedCount;
+        Object[] previous = new Object[MAGAZINE_SIZE];
+        int previousCount;
+
+        /**
+         * Swaps in the previous magazine if that helps: a non-empty one when the loaded one is empty, or
+         * a non-full one when the loaded one is full.
+         *
+         * @return {@code true} if the magazines were swapped.
+         */
+        boolean swapPrevious() {
+            boolean useful = loadedCount == 0 ? previousCount > 0 : previousCount < MAGAZINE_SIZE;
+            if (useful) {
+                Object[] magazine = loaded;
+                int count = loadedCount;
+                loaded = previous;
+                loadedCount = previousCount;
+                previous = magazine;
+                previousCount = count;
+            }
+            return useful;
+        }
+
+        /**
+         * Replaces the previous magazine, which is empty whenever this is called, with a full one from the depot.
+         *
+         * @return {@code true} if a full magazine was loaded.
+         */
+        boolean load(Object[] full, ObjectPool<?> pool) {
+            if (full == null) {
+                return false;
+            }
+            putMagazine(pool.emptyMagazines, previous);
+            previous = loaded;
+            previousCount = 0;
+            loaded = full;
+            loadedCount = MAGAZINE_SIZE;
+            return true;
+        }
+    }
+
+    /**
+     * Reports every object that is still handed out, with the place it was acquired. Each object is
+     * reported once, the first time it is found, and stays tracked, so releasing it later is not mistaken
+     * for a double release. Only does anything in debug mode. Call it at a point where every object is
+     * expected to be back, such as the end of a tick.
+     *
+     * @return The number of objects that were still handed out.
+     */
+    public int checkBalance() {
+        if (!debug) {
+            return 0;
+        }
+        synchronized (outstanding) {
+            for (Lease lease : outstanding.values()) {
+                if (!lease.reported) {
+                    lease.reported = true;
+                    LFlagger.LOGGER.error("Object from pool {} was not released by the end of the tick", name, lease.acquiredAt);
+                }
+            }
+            return outstanding.size();
+        }
+    }
+
+    /**
+     * Where a handed-out object was acquired, in debug mode.
+     */
+    private static final class Lease {
+        final Throwable acquiredAt;
+        /** Whether {@link #checkBalance()} already reported the object. */
+        boolean reported;
+
+        Lease(Throwable acquiredAt) {
+            this.acquiredAt = acquiredAt;
+        }
+    }
+
+    /**
+     * Turns leak and double-release detection on or off. Objects handed out while it was off are not tracked.
+     */
+    public void setDebug(boolean value) {
+        if (debug != value) {
+            synchronized (outstanding) {
+                outstanding.clear();
+                debug = value;
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The fraction of acquires that were served from the pool instead of creating an object.
+     */
+    public double getHitRate() {
+        long served = hits.sum();
+        long total = served + misses.sum();
+        return total == 0 ? 0.0 : (double) served / total;
+    }
+
+    /**
+     * @return The number of objects handed out and not released yet.
+     */
+    public long getOutstanding() {
+        return inUse.get();
+    }
+
+    /**
+     * @return The most objects that were handed out at the same time.
+     */
+    public long getPeakOutstanding() {
+        return peakInUse.get();
+    }
+
+    /**
+     * @return The number of objects the pool ever created. This exceeds {@link #getPeakOutstanding()} when
+     *         released objects were discarded, or when idle objects sat in another thread's magazines
+     *         while this one had to create new ones.
+     */
+    public long getCreated() {
+        return misses.sum();
+    }
+
+    /**
+     * @return The number of released objects dropped because the depot was full.
+     */
+    public long getDiscarded() {
+        return discards.sum();
+    }
+
+    /**
+     * @return A one-line summary of the pool's statistics.
+     */
+    public String formatStats() {
+        return String.format("%s: %.1f%% hits, %d created, %d out, %d peak, %d discarded",
+                name, getHitRate() * 100.0, getCreated(), getOutstanding(), getPeakOutstanding(), getDiscarded());
+    }
+
+    /**
+     * @return Every pool created so far, in creation order.
+     */
+    public static List<ObjectPool<?>> getPools() {
+        return new ArrayList<>(pools);
     }
-}
\ No newline at end of file
+}